@@ -23,6 +23,11 @@ tasks.compileTestJava { options.encoding = "UTF-8" }
 tasks.test {
     useJUnit()
     maxHeapSize = "4G"
+    // the scaling test only runs with `./gradlew test -Pscaling`, and its
+    // threshold can be given by `-Pscaling.max-exponent=<exponent>`
+    listOf("scaling", "scaling.max-exponent").forEach { name ->
+        project.findProperty(name)?.let { systemProperty(name, it) }
+    }
 }
 
 java {
@@ -31,6 +36,40 @@ java {
     }
 }
 
+// JMH benchmarks of the data-flow framework, which are located in src/jmh
+// and can use the test sources (e.g., the generator of large methods).
+// Run them by `./gradlew jmh`, and pass JMH arguments by property jmh, e.g.,
+// `./gradlew jmh -Pjmh="AnalysisBenchmark -p program=Large-10000"`.
+// The results are written to build/results/jmh/results.json.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += output + compileClasspath
+}
+
+configurations[jmh.implementationConfigurationName]
+    .extendsFrom(configurations.testImplementation.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.named<JavaCompile>(jmh.compileJavaTaskName) { options.encoding = "UTF-8" }
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    // the benchmarks read test programs relative to the project directory
+    workingDir = projectDir
+    val results = layout.buildDirectory.file("results/jmh/results.json").get().asFile
+    val jmhArgs = (project.findProperty("jmh") as String?)
+        ?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+    args(jmhArgs + listOf("-rf", "json", "-rff", results.absolutePath))
+    doFirst { results.parentFile.mkdirs() }
+}
+
 val libDir = project.projectDir.parentFile.parentFile.resolve("lib")
 libDir.listFiles()
     ?.map { it.name }
@@ -0,0 +1,148 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pascal.taie.Main;
+import pascal.taie.analysis.MethodAnalysisDriver;
+import pascal.taie.analysis.dataflow.analysis.DeadCodeDetection;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of solving {@code livevar} and {@code constprop}, and of
+ * {@code deadcode}, on all methods of a program. The programs are the test
+ * programs of dead code detection, and generated classes {@code Large-N}
+ * whose single method has N statements (see {@link LargeMethodGenerator}).
+ * <p>
+ * The world is built once per trial, and each invocation analyzes
+ * the IRs of all application methods sequentially.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:+UseParallelGC"})
+public class AnalysisBenchmark {
+
+    private static final String DEADCODE_DIR = "src/test/resources/dataflow/deadcode";
+
+    private static final String GENERATED = "Large-";
+
+    @Param({"Loops", "UnreachableSwitchBranch", "DeadAssignment",
+            "Large-1000", "Large-10000"})
+    String program;
+
+    @Param({"worklist", "priority", "block", "wto"})
+    String solver;
+
+    /**
+     * Whether to use compact facts, i.e., option {@code bitset}
+     * of {@code livevar} and option {@code dense} of {@code constprop}.
+     */
+    @Param({"false", "true"})
+    boolean compact;
+
+    private List<IR> irs;
+
+    private LiveVariableAnalysis liveVar;
+
+    private ConstantPropagation constProp;
+
+    private DeadCodeDetection deadCode;
+
+    @Setup
+    public void setUp() throws IOException {
+        String classPath, mainClass;
+        if (program.startsWith(GENERATED)) {
+            int statements = Integer.parseInt(program.substring(GENERATED.length()));
+            Path dir = Files.createTempDirectory("tai-e-jmh");
+            mainClass = "Large";
+            new LargeMethodGenerator(statements, 64, 0).write(dir, mainClass);
+            classPath = dir.toString();
+        } else {
+            classPath = DEADCODE_DIR;
+            mainClass = program;
+        }
+        // build the world, and the CFGs and the results required by deadcode
+        Main.main(new String[]{"-pp", "-cp", classPath, "-m", mainClass,
+                "-a", "livevar=strongly:false", "-a", "constprop=edge-refine:false",
+                "-a", DeadCodeDetection.ID});
+        irs = MethodAnalysisDriver.getApplicationMethods()
+                .stream()
+                .map(JMethod::getIR)
+                .toList();
+        liveVar = new LiveVariableAnalysis(new AnalysisConfig(LiveVariableAnalysis.ID,
+                "strongly", false, "bitset", compact, "solver", solver));
+        constProp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID,
+                "edge-refine", false, "dense", compact, "solver", solver));
+        deadCode = new DeadCodeDetection(new AnalysisConfig(DeadCodeDetection.ID,
+                "sccp", false));
+    }
+
+    @Benchmark
+    public void livevar(Blackhole blackhole) {
+        for (IR ir : irs) {
+            blackhole.consume(liveVar.analyze(ir));
+        }
+    }
+
+    @Benchmark
+    public void constprop(Blackhole blackhole) {
+        for (IR ir : irs) {
+            blackhole.consume(constProp.analyze(ir));
+        }
+    }
+
+    /**
+     * Detects dead code based on the results of {@code livevar} and
+     * {@code constprop} computed when building the world.
+     */
+    @Benchmark
+    public void deadcode(Blackhole blackhole) {
+        for (IR ir : irs) {
+            blackhole.consume(deadCode.analyze(ir));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.CompiledTransfers;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.DenseCPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.BitwiseExp;
+import pascal.taie.ir.exp.ConditionExp;
+import pascal.taie.ir.exp.ShiftExp;
+import pascal.taie.ir.exp.Var;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ConstantPropagation#evaluate}, which compiles the
+ * expression on every call, and the evaluators compiled once by
+ * {@link CompiledTransfers} on random binary expressions, whose operands
+ * are constants, NAC or UNDEF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+UseParallelGC"})
+public class EvaluateBenchmark {
+
+    private static final int VARS = 64;
+
+    private static final int EXPS = 1024;
+
+    /**
+     * {@code persistent} for {@link CPFact}, {@code dense} for {@link DenseCPFact}.
+     */
+    @Param({"persistent", "dense"})
+    String kind;
+
+    private BinaryExp[] exps;
+
+    private CompiledTransfers.Evaluator[] evaluators;
+
+    private CPFact fact;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20220423L);
+        List<Var> vars = FactBenchmark.newVars(VARS);
+        fact = kind.equals("dense") ?
+                new DenseCPFact(VARS, vars::get) : new CPFact();
+        for (Var var : vars) {
+            // leave about 1/8 variables UNDEF
+            switch (random.nextInt(8)) {
+                case 0 -> {
+                }
+                case 1 -> fact.update(var, Value.getNAC());
+                default -> fact.update(var, Value.makeConstant(random.nextInt(32) - 8));
+            }
+        }
+        exps = new BinaryExp[EXPS];
+        evaluators = new CompiledTransfers.Evaluator[EXPS];
+        for (int i = 0; i < EXPS; ++i) {
+            Var v1 = vars.get(random.nextInt(VARS));
+            Var v2 = vars.get(random.nextInt(VARS));
+            exps[i] = switch (random.nextInt(4)) {
+                case 0 -> new ArithmeticExp(pick(ArithmeticExp.Op.values(), random), v1, v2);
+                case 1 -> new BitwiseExp(pick(BitwiseExp.Op.values(), random), v1, v2);
+                case 2 -> new ShiftExp(pick(ShiftExp.Op.values(), random), v1, v2);
+                default -> new ConditionExp(pick(ConditionExp.Op.values(), random), v1, v2);
+            };
+            evaluators[i] = CompiledTransfers.compile(exps[i], kind.equals("dense"));
+        }
+    }
+
+    private static <T> T pick(T[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Evaluates all the expressions, thus the score is the time of
+     * {@value EXPS} evaluations.
+     */
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        for (BinaryExp exp : exps) {
+            blackhole.consume(ConstantPropagation.evaluate(exp, fact));
+        }
+    }
+
+    /**
+     * Evaluates all the expressions by their compiled evaluators.
+     */
+    @Benchmark
+    public void evaluateCompiled(Blackhole blackhole) {
+        for (CompiledTransfers.Evaluator evaluator : evaluators) {
+            blackhole.consume(evaluator.evaluate(fact));
+        }
+    }
+}
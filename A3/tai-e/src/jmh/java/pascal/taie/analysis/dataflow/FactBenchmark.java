@@ -0,0 +1,212 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.DenseCPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.type.PrimitiveType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the operations of data-flow facts, i.e., the operations
+ * performed by meet and transfer functions on every node visit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+UseParallelGC"})
+public class FactBenchmark {
+
+    private static final long SEED = 20220423L;
+
+    /**
+     * @return {@code size} int variables indexed from 0.
+     */
+    static List<Var> newVars(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> new Var(null, "v" + i, PrimitiveType.INT, i))
+                .toList();
+    }
+
+    /**
+     * Two set facts over the same variables, each containing
+     * a random half of the variables.
+     */
+    @State(Scope.Benchmark)
+    public static class SetFacts {
+
+        @Param({"16", "256", "4096"})
+        int size;
+
+        /**
+         * {@code hybrid} for {@link SetFact}, {@code bitset} for {@link BitSetFact}.
+         */
+        @Param({"hybrid", "bitset"})
+        String kind;
+
+        SetFact<Var> fact1;
+
+        SetFact<Var> fact2;
+
+        @Setup
+        public void setUp() {
+            List<Var> vars = newVars(size);
+            Random random = new Random(SEED);
+            fact1 = newFact(vars);
+            fact2 = newFact(vars);
+            for (Var var : vars) {
+                if (random.nextBoolean()) {
+                    fact1.add(var);
+                }
+                if (random.nextBoolean()) {
+                    fact2.add(var);
+                }
+            }
+        }
+
+        private SetFact<Var> newFact(List<Var> vars) {
+            return kind.equals("bitset") ?
+                    new BitSetFact<>(vars.size(), vars::get) :
+                    new SetFact<>();
+        }
+    }
+
+    /**
+     * Two constant propagation facts over the same variables, each mapping
+     * a random half of the variables to constants or NAC.
+     */
+    @State(Scope.Benchmark)
+    public static class CPFacts {
+
+        @Param({"16", "256", "4096"})
+        int size;
+
+        /**
+         * {@code map} for {@link MapFact} over hash maps, {@code persistent}
+         * for {@link CPFact}, and {@code dense} for {@link DenseCPFact}.
+         */
+        @Param({"map", "persistent", "dense"})
+        String kind;
+
+        List<Var> vars;
+
+        MapFact<Var, Value> fact1;
+
+        MapFact<Var, Value> fact2;
+
+        @Setup
+        public void setUp() {
+            vars = newVars(size);
+            Random random = new Random(SEED);
+            fact1 = newFact();
+            fact2 = newFact();
+            for (Var var : vars) {
+                if (random.nextBoolean()) {
+                    fact1.update(var, randomValue(random));
+                }
+                if (random.nextBoolean()) {
+                    fact2.update(var, randomValue(random));
+                }
+            }
+        }
+
+        private MapFact<Var, Value> newFact() {
+            return switch (kind) {
+                case "map" -> new MapFact<>(Map.of());
+                case "persistent" -> new CPFact();
+                case "dense" -> new DenseCPFact(vars.size(), vars::get);
+                default -> throw new IllegalArgumentException(kind);
+            };
+        }
+
+        private static Value randomValue(Random random) {
+            return random.nextInt(8) == 0 ?
+                    Value.getNAC() : Value.makeConstant(random.nextInt(16));
+        }
+    }
+
+    @Benchmark
+    public SetFact<Var> setCopy(SetFacts s) {
+        return s.fact1.copy();
+    }
+
+    @Benchmark
+    public SetFact<Var> setUnion(SetFacts s) {
+        SetFact<Var> result = s.fact1.copy();
+        result.union(s.fact2);
+        return result;
+    }
+
+    @Benchmark
+    public boolean setEquals(SetFacts s) {
+        return s.fact1.equals(s.fact2);
+    }
+
+    @Benchmark
+    public MapFact<Var, Value> cpCopy(CPFacts s) {
+        return s.fact1.copy();
+    }
+
+    @Benchmark
+    public MapFact<Var, Value> cpCopyFrom(CPFacts s) {
+        MapFact<Var, Value> result = s.fact1.copy();
+        result.copyFrom(s.fact2);
+        return result;
+    }
+
+    @Benchmark
+    public MapFact<Var, Value> cpUpdate(CPFacts s) {
+        MapFact<Var, Value> result = s.fact1.copy();
+        for (int i = 0; i < s.vars.size(); i += 8) {
+            result.update(s.vars.get(i), Value.makeConstant(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean cpEquals(CPFacts s) {
+        return s.fact1.equals(s.fact2);
+    }
+}
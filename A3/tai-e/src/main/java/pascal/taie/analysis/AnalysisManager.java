@@ -0,0 +1,215 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.Timer;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Creates and executes analyses based on given analysis configurations.
+ * <p>
+ * Each method analysis is run over all methods in scope before the next
+ * analysis starts. Alternatively, if any analysis of a run of consecutive
+ * method analyses in the plan sets option {@code pipeline-parallelism}
+ * to a positive number, the run is executed as a pipeline by
+ * {@link MethodAnalysisDriver} with that number of threads, i.e.,
+ * each method is analyzed by all analyses of the run in plan order
+ * before the thread moves on to another method.
+ */
+public class AnalysisManager {
+
+    private static final Logger logger = LogManager.getLogger(AnalysisManager.class);
+
+    /**
+     * Option of method analyses to enable the pipeline mode.
+     */
+    private static final String PIPELINE_PARALLELISM = "pipeline-parallelism";
+
+    private List<JClass> classScope;
+
+    private List<JMethod> methodScope;
+
+    public void execute(List<AnalysisConfig> analysisConfigs) {
+        List<AnalysisConfig> methodConfigs = new ArrayList<>();
+        for (AnalysisConfig config : analysisConfigs) {
+            if (MethodAnalysis.class.isAssignableFrom(getAnalysisClass(config))) {
+                methodConfigs.add(config);
+            } else {
+                runMethodAnalyses(methodConfigs);
+                methodConfigs.clear();
+                Timer.runAndCount(() -> runAnalysis(config), config.getId());
+            }
+        }
+        runMethodAnalyses(methodConfigs);
+    }
+
+    /**
+     * Runs a run of consecutive method analyses in the plan, either one
+     * by one, or as a pipeline.
+     */
+    private void runMethodAnalyses(List<AnalysisConfig> configs) {
+        int parallelism = 0;
+        for (AnalysisConfig config : configs) {
+            parallelism = Math.max(parallelism, getPipelineParallelism(config));
+        }
+        if (parallelism > 0) {
+            List<MethodAnalysis> analyses = configs.stream()
+                    .map(c -> (MethodAnalysis) newAnalysis(c))
+                    .toList();
+            MethodAnalysisDriver driver = new MethodAnalysisDriver(parallelism);
+            Timer.runAndCount(() -> driver.analyze(getMethodScope(), analyses),
+                    configs.stream()
+                            .map(AnalysisConfig::getId)
+                            .collect(Collectors.joining(", ", "pipeline [", "]")));
+        } else {
+            configs.forEach(config -> Timer.runAndCount(
+                    () -> runAnalysis(config), config.getId()));
+        }
+    }
+
+    private static int getPipelineParallelism(AnalysisConfig config) {
+        Object value = config.getOptions().get(PIPELINE_PARALLELISM);
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Integer parallelism && parallelism >= 0) {
+            return parallelism;
+        } else {
+            throw new ConfigException(String.format(
+                    "Invalid value of option %s of %s: %s, expected" +
+                            " a non-negative integer",
+                    PIPELINE_PARALLELISM, config.getId(), value));
+        }
+    }
+
+    private static Class<?> getAnalysisClass(AnalysisConfig config) {
+        try {
+            return Class.forName(config.getAnalysisClass());
+        } catch (ClassNotFoundException e) {
+            throw new AnalysisException("Analysis class " +
+                    config.getAnalysisClass() + " is not found", e);
+        }
+    }
+
+    private static Analysis newAnalysis(AnalysisConfig config) {
+        try {
+            Constructor<?> ctor = getAnalysisClass(config)
+                    .getConstructor(AnalysisConfig.class);
+            return (Analysis) ctor.newInstance(config);
+        } catch (ReflectiveOperationException e) {
+            throw new AnalysisException("Failed to initialize " +
+                    config.getAnalysisClass(), e);
+        }
+    }
+
+    private void runAnalysis(AnalysisConfig config) {
+        Analysis analysis = newAnalysis(config);
+        if (analysis instanceof ProgramAnalysis pa) {
+            runProgramAnalysis(pa);
+        } else if (analysis instanceof ClassAnalysis ca) {
+            runClassAnalysis(ca);
+        } else if (analysis instanceof MethodAnalysis ma) {
+            runMethodAnalysis(ma);
+        } else {
+            logger.warn(analysis.getClass() + " is not a program, class," +
+                    " or method analysis");
+        }
+    }
+
+    private void runProgramAnalysis(ProgramAnalysis analysis) {
+        Object result = analysis.analyze();
+        if (result != null) {
+            World.get().storeResult(analysis.getId(), result);
+        }
+    }
+
+    private void runClassAnalysis(ClassAnalysis analysis) {
+        getClassScope().parallelStream().forEach(c -> {
+            Object result = analysis.analyze(c);
+            if (result != null) {
+                c.storeResult(analysis.getId(), result);
+            }
+        });
+    }
+
+    private List<JClass> getClassScope() {
+        if (classScope == null) {
+            String scope = World.get().getOptions().getScope();
+            classScope = switch (scope) {
+                case "app" -> World.get().getClassHierarchy()
+                        .applicationClasses().toList();
+                case "all" -> World.get().getClassHierarchy()
+                        .allClasses().toList();
+                // scope "reachable" needs a call graph, which is not
+                // available without the call graph builder
+                default -> throw new ConfigException(
+                        "Unsupported scope option: " + scope);
+            };
+            logger.info("{} classes in scope ({}) of class analyses",
+                    classScope.size(), scope);
+        }
+        return classScope;
+    }
+
+    private void runMethodAnalysis(MethodAnalysis analysis) {
+        getMethodScope().parallelStream().forEach(m -> {
+            IR ir = m.getIR();
+            Object result = analysis.analyze(ir);
+            if (result != null) {
+                ir.storeResult(analysis.getId(), result);
+            }
+        });
+    }
+
+    private List<JMethod> getMethodScope() {
+        if (methodScope == null) {
+            String scope = World.get().getOptions().getScope();
+            methodScope = switch (scope) {
+                case "app", "all" -> getClassScope()
+                        .stream()
+                        .map(JClass::getDeclaredMethods)
+                        .flatMap(Collection::stream)
+                        .filter(m -> !m.isAbstract() && !m.isNative())
+                        .toList();
+                default -> throw new ConfigException(
+                        "Unsupported scope option: " + scope);
+            };
+            logger.info("{} methods in scope ({}) of method analyses",
+                    methodScope.size(), scope);
+        }
+        return methodScope;
+    }
+}
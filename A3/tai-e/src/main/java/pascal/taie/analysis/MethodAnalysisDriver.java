@@ -0,0 +1,122 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a pipeline of {@link MethodAnalysis}es (e.g., {@code livevar},
+ * {@code constprop} and {@code deadcode}) over many methods in parallel.
+ * <p>
+ * Each method is a task on a dedicated fork-join pool, and the task
+ * runs all analyses of the pipeline on the IR of the method in the given
+ * order, storing the result of each analysis in the IR before running
+ * the next one. Thus, an analysis can use the results of the analyses
+ * listed before it on the same IR (e.g., {@code deadcode} uses the results
+ * of {@code constprop} and {@code livevar}), and the results of an IR are
+ * only written by the thread analyzing the IR. The analyses must not keep
+ * per-method mutable states, as they are shared by all threads.
+ * <p>
+ * {@link AnalysisManager} runs consecutive method analyses of the plan
+ * through this driver when any of them sets the option
+ * {@code pipeline-parallelism} to a positive number of threads.
+ */
+public class MethodAnalysisDriver {
+
+    private static final Logger logger = LogManager.getLogger(MethodAnalysisDriver.class);
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism number of threads used to analyze methods
+     */
+    public MethodAnalysisDriver(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive, given: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a driver which uses all available processors.
+     */
+    public MethodAnalysisDriver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs given analyses on given methods.
+     *
+     * @param methods  the methods to be analyzed
+     * @param analyses the analyses to run on each method, where each
+     *                 analysis must be placed after the analyses it requires
+     */
+    public void analyze(Collection<JMethod> methods,
+                        List<? extends MethodAnalysis> analyses) {
+        logger.info("Analyzing {} methods with {} threads",
+                methods.size(), parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<?>> tasks = methods.stream()
+                    .<ForkJoinTask<?>>map(method ->
+                            pool.submit(() -> analyze(method.getIR(), analyses)))
+                    .toList();
+            // join() rethrows the exception (if any) thrown by the task
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void analyze(IR ir, List<? extends MethodAnalysis> analyses) {
+        for (MethodAnalysis analysis : analyses) {
+            Object result = analysis.analyze(ir);
+            if (result != null) {
+                ir.storeResult(analysis.getId(), result);
+            }
+        }
+    }
+
+    /**
+     * @return the non-abstract methods of application classes, which are
+     * the methods analyzed by intraprocedural analyses in {@code app} scope.
+     */
+    public static List<JMethod> getApplicationMethods() {
+        return World.get()
+                .getClassHierarchy()
+                .applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .toList();
+    }
+}
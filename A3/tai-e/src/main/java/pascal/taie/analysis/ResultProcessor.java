@@ -25,7 +25,9 @@ package pascal.taie.analysis;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.IRPrinter;
 import pascal.taie.ir.stmt.Stmt;
@@ -66,6 +68,8 @@ public class ResultProcessor extends ProgramAnalysis {
 
     private static final Logger logger = LogManager.getLogger(ResultProcessor.class);
 
+    private static final int DEFAULT_SOLVER_METRICS_TOP = 10;
+
     private final String action;
 
     private PrintStream out;
@@ -101,6 +105,10 @@ public class ResultProcessor extends ProgramAnalysis {
         if (getOptions().getBoolean("log-mismatches")) {
             mismatches.forEach(logger::info);
         }
+        if (groups.containsKey(false) &&
+                getOptions().getBooleanOrDefault("solver-metrics", false)) {
+            reportSolverMetrics(groups.get(false));
+        }
         return mismatches;
     }
 
@@ -153,7 +161,12 @@ public class ResultProcessor extends ProgramAnalysis {
     }
 
     private void processIntraResults(List<String> analyses) {
-        Stream<JMethod> methods = World.get()
+        processResults(getIntraMethods(), analyses,
+                (m, id) -> m.getIR().getResult(id));
+    }
+
+    private static Stream<JMethod> getIntraMethods() {
+        return World.get()
                 .getClassHierarchy()
                 .applicationClasses()
                 .map(JClass::getDeclaredMethods)
@@ -161,7 +174,43 @@ public class ResultProcessor extends ProgramAnalysis {
                 .filter(m -> !m.isAbstract() && !m.isNative())
                 .sorted(Comparator.comparing(m ->
                         m.getIR().getStmt(0).getLineNumber()));
-        processResults(methods, analyses, (m, id) -> m.getIR().getResult(id));
+    }
+
+    /**
+     * Logs the report of the solver metrics of given data-flow analyses,
+     * which are stored in the IRs by the analyses.
+     */
+    private void reportSolverMetrics(List<String> analyses) {
+        int top = getSolverMetricsTop();
+        analyses.forEach(id -> {
+            String key = SolverMetrics.getResultKey(id);
+            List<SolverMetrics> metrics = getIntraMethods()
+                    .map(m -> m.getIR().<SolverMetrics>getResult(key))
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (!metrics.isEmpty()) {
+                logger.info("Solver metrics of {}:{}{}", id,
+                        System.lineSeparator(), SolverMetrics.report(metrics, top));
+            }
+        });
+    }
+
+    /**
+     * @return the number of the most expensive methods listed in the
+     * report of solver metrics, given by option {@code solver-metrics-top}.
+     * @throws ConfigException if the option is not a positive integer
+     */
+    private int getSolverMetricsTop() {
+        Object value = getOptions().get("solver-metrics-top");
+        if (value == null) {
+            return DEFAULT_SOLVER_METRICS_TOP;
+        } else if (value instanceof Integer top && top > 0) {
+            return top;
+        } else {
+            throw new ConfigException(String.format(
+                    "Invalid value of option solver-metrics-top of %s: %s," +
+                            " expected a positive integer", ID, value));
+        }
     }
 
     private void processResults(Stream<JMethod> methods, List<String> analyses,
@@ -24,30 +24,157 @@ package pascal.taie.analysis.dataflow.analysis;
 
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
+import pascal.taie.analysis.dataflow.fact.ResultCache;
 import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Base class of data-flow analyses, which solves the analyses on
+ * the CFGs of methods by {@link Solver}s.
+ * <p>
+ * When option {@code cache-dir} is given, the results of the analyses
+ * which provide a {@link FactCodec} are persisted in a {@link ResultCache}
+ * in that directory, whose total size is bounded by option
+ * {@code cache-size} (in megabytes, 256 by default; the analyses sharing
+ * a directory must give the same size). A method whose IR is unchanged
+ * since a previous run is then not solved again.
+ */
 public abstract class AbstractDataflowAnalysis<Node, Fact>
         extends MethodAnalysis
         implements DataflowAnalysis<Node, Fact> {
 
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
     private final Solver<Node, Fact> solver;
 
+    /**
+     * Cache of the results, or {@code null} if results are not cached.
+     */
+    private final ResultCache cache;
+
     protected AbstractDataflowAnalysis(AnalysisConfig config) {
         super(config);
-        solver = Solver.makeSolver(this);
+        solver = Solver.makeSolver(this, getOptions().getString("solver"));
+        String cacheDir = getOptions().getString("cache-dir");
+        if (cacheDir != null) {
+            int size = getCacheSize();
+            try {
+                cache = ResultCache.get(Path.of(cacheDir), size * 1024L * 1024L);
+            } catch (IllegalArgumentException e) {
+                throw new ConfigException(String.format(
+                        "Invalid value of option cache-size of %s: %d," +
+                                " expected the same size as the other analyses" +
+                                " caching results in %s", getId(), size, cacheDir), e);
+            }
+        } else {
+            cache = null;
+        }
     }
 
+    /**
+     * @return the maximum size (in megabytes) of the result cache,
+     * given by option {@code cache-size}.
+     * @throws ConfigException if the option is not a positive integer
+     */
+    private int getCacheSize() {
+        Object value = getOptions().get("cache-size");
+        if (value == null) {
+            return DEFAULT_CACHE_SIZE;
+        } else if (value instanceof Integer size && size > 0) {
+            return size;
+        } else {
+            throw new ConfigException(String.format(
+                    "Invalid value of option cache-size of %s: %s," +
+                            " expected a positive integer", getId(), value));
+        }
+    }
+
+    /**
+     * Analyzes the given IR. If the result is cached, then it is loaded
+     * from the cache without solving, otherwise it is computed by
+     * {@link #doAnalyze(IR)} and then cached.
+     */
     @Override
     public DataflowResult<Node, Fact> analyze(IR ir) {
+        FactCodec<Node, Fact> codec = cache == null ? null : getFactCodec();
+        if (codec == null) {
+            return doAnalyze(ir);
+        }
+        CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
+        String key = ResultCache.key(getId(), getOptions(), ir, cfg);
+        DataflowResult<Node, Fact> result = cache.load(key, cfg, codec);
+        if (result == null) {
+            result = doAnalyze(ir);
+            cache.store(key, cfg, result, codec);
+        }
+        return result;
+    }
+
+    /**
+     * Solves this analysis on the given IR, and stores the metrics of
+     * the solver in the IR with key {@link SolverMetrics#getResultKey}.
+     */
+    protected DataflowResult<Node, Fact> doAnalyze(IR ir) {
+        DataflowResult<Node, Fact> result = solve(ir);
+        ir.storeResult(SolverMetrics.getResultKey(getId()), solver.getLastMetrics());
+        return result;
+    }
+
+    /**
+     * Solves this analysis on the given IR for the clients which need
+     * the facts of a whole method internally, e.g., demand-driven queries.
+     * Unlike {@link #analyze(IR)}, the result is not cached, and the
+     * metrics of the solver are not stored in the IR.
+     */
+    public DataflowResult<Node, Fact> solve(IR ir) {
         CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
         return solver.solve(cfg);
     }
 
+    /**
+     * Updates the result of previous {@link #analyze(IR)} on the given IR
+     * after the given nodes changed, which is cheaper than analyzing
+     * the IR again when the changes are localized. The block and WTO
+     * solvers do not support this method.
+     *
+     * @see Solver#solveIncrementally(CFG, DataflowResult, Collection)
+     */
+    public DataflowResult<Node, Fact> reanalyze(
+            IR ir, DataflowResult<Node, Fact> previous, Collection<Node> changedNodes) {
+        CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
+        return solver.solveIncrementally(cfg, previous, changedNodes);
+    }
+
+    /**
+     * @return the number of CFG nodes visited by the solver of this
+     * analysis so far, which reflects the cost of solving.
+     */
+    public long getNodeVisits() {
+        return solver.getNodeVisits();
+    }
+
+    /**
+     * Analyses whose results can be persisted in {@link ResultCache}
+     * override this method. The nodes of their CFGs must be
+     * {@link pascal.taie.util.Indexable}.
+     *
+     * @return the codec of the facts of this analysis, or {@code null}
+     * (by default) if the results of this analysis are not cached.
+     */
+    protected FactCodec<Node, Fact> getFactCodec() {
+        return null;
+    }
+
     /**
      * By default, a data-flow analysis does not have edge transfer, i.e.,
      * does not need to perform transfer for any edges.
@@ -49,12 +49,37 @@ public interface DataflowAnalysis<Node, Fact> {
      */
     Fact newInitialFact();
 
+    /**
+     * Analyses whose facts depend on the CFG being analyzed (e.g., facts
+     * indexed by the variables of the method) can override this method.
+     *
+     * @return new initial fact for non-boundary nodes of given CFG.
+     */
+    default Fact newInitialFact(CFG<Node> cfg) {
+        return newInitialFact();
+    }
+
     /**
      * Meets a fact into another (target) fact.
      * This function will be used to handle control-flow confluences.
      */
     void meetInto(Fact fact, Fact target);
 
+    /**
+     * Widens the fact flowing into a loop head, so that the iteration over
+     * the loop converges in a few steps even if the lattice of facts is
+     * of large or infinite height. Solvers that are aware of loop heads
+     * (e.g., the WTO solver) apply this function only at the heads.
+     *
+     * @param oldFact the previous fact flowing into the head
+     * @param newFact the newly computed fact flowing into the head
+     * @return the widened fact, which must be greater than or equal to
+     * {@code newFact}. By default, returns {@code newFact}, i.e., no widening.
+     */
+    default Fact widen(Fact oldFact, Fact newFact) {
+        return newFact;
+    }
+
     /**
      * Node Transfer function for the analysis.
      * The function transfers data-flow from in (out) fact to out (in) fact
@@ -64,6 +89,19 @@ public interface DataflowAnalysis<Node, Fact> {
      */
     boolean transferNode(Node node, Fact in, Fact out);
 
+    /**
+     * Node Transfer function for the nodes of given CFG, which is called
+     * by the solvers. Analyses whose transfer functions depend on per-CFG
+     * data (e.g., data computed once per method and cached in its IR)
+     * can override this method. By default, it is the same as
+     * {@link #transferNode(Object, Object, Object)}.
+     *
+     * @return true if the transfer changed the out (in) fact, otherwise false.
+     */
+    default boolean transferNode(CFG<Node> cfg, Node node, Fact in, Fact out) {
+        return transferNode(node, in, out);
+    }
+
     /**
      * @return true if this analysis needs to perform transfer for given edge, otherwise false.
      */
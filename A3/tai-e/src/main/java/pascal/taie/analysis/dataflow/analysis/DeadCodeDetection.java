@@ -24,7 +24,10 @@ package pascal.taie.analysis.dataflow.analysis;
 
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.CompiledTransfers;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.SCCPResult;
+import pascal.taie.analysis.dataflow.analysis.constprop.SparseConditionalConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.dataflow.fact.SetFact;
@@ -41,21 +44,33 @@ import pascal.taie.ir.stmt.SwitchStmt;
 
 import java.util.*;
 
+/**
+ * Detects unreachable code and dead assignments.
+ * <p>
+ * When option {@code sccp} is enabled, the unreachable code is detected by
+ * {@link SparseConditionalConstantPropagation}, which computes the constants
+ * and the reachable statements in one pass, instead of walking the CFG
+ * with the result of {@link ConstantPropagation}. In this case, this
+ * analysis does not require {@link ConstantPropagation}.
+ */
 public class DeadCodeDetection extends MethodAnalysis {
 
     public static final String ID = "deadcode";
 
+    /**
+     * Whether to detect unreachable code by conditional constant propagation.
+     */
+    private final boolean sccp;
+
     public DeadCodeDetection(AnalysisConfig config) {
         super(config);
+        sccp = getOptions().getBooleanOrDefault("sccp", false);
     }
 
     @Override
     public Set<Stmt> analyze(IR ir) {
         // obtain CFG
         CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
-        // obtain result of constant propagation
-        DataflowResult<Stmt, CPFact> constants =
-                ir.getResult(ConstantPropagation.ID);
         // obtain result of live variable analysis
         DataflowResult<Stmt, SetFact<Var>> liveVars =
                 ir.getResult(LiveVariableAnalysis.ID);
@@ -64,6 +79,51 @@ public class DeadCodeDetection extends MethodAnalysis {
         // Your task is to recognize dead code in ir and add it to deadCode
 
         // unreachable branch
+        if (sccp) {
+            SCCPResult sccpResult = SparseConditionalConstantPropagation.analyze(cfg);
+            for (Stmt stmt : ir.getStmts()) {
+                if (!sccpResult.isReachable(stmt)) {
+                    deadCode.add(stmt);
+                }
+            }
+        } else {
+            // obtain result of constant propagation
+            DataflowResult<Stmt, CPFact> constants =
+                    ir.getResult(ConstantPropagation.ID);
+            findUnreachableCode(ir, cfg, constants, deadCode);
+        }
+
+//        System.out.printf("11: %d\n", deadCode.size());
+
+        // unused assignment
+        for (Stmt stmt : ir.getStmts()) {
+            if (deadCode.contains(stmt)) continue;
+
+            if (!(stmt instanceof AssignStmt<?,?>)) continue;
+
+            LValue lValue = ((AssignStmt<?, ?>) stmt).getLValue();
+            if (!(lValue instanceof  Var)) continue;
+
+            RValue rValue = ((AssignStmt<?, ?>) stmt).getRValue();
+            if (!hasNoSideEffect(rValue)) continue;
+
+            if (!liveVars.getOutFact(stmt).contains((Var) lValue)) {
+                deadCode.add(stmt);
+            }
+        }
+
+//        System.out.printf("22: %d\n", deadCode.size());
+        return deadCode;
+    }
+
+    /**
+     * Adds the statements which are unreachable from the entry to deadCode,
+     * where the branches are pruned by the result of constant propagation.
+     */
+    private static void findUnreachableCode(IR ir, CFG<Stmt> cfg,
+                                            DataflowResult<Stmt, CPFact> constants,
+                                            Set<Stmt> deadCode) {
+        CompiledTransfers transfers = CompiledTransfers.of(ir);
         Set<Stmt> reachable_stmts = new TreeSet<>(Comparator.comparing(Stmt::getIndex));
         Set<Stmt> vis = new HashSet<>();
         Queue<Stmt> queue = new LinkedList<>();
@@ -74,7 +134,7 @@ public class DeadCodeDetection extends MethodAnalysis {
             reachable_stmts.add(cur_stmt);
             Set<Edge<Stmt>> out_edges = cfg.getOutEdgesOf(cur_stmt);
             if (cur_stmt instanceof If) {
-                Value eval_result = ConstantPropagation.evaluate(((If) cur_stmt).getCondition(), constants.getOutFact(cur_stmt));
+                Value eval_result = transfers.evaluateCondition(cur_stmt, constants.getOutFact(cur_stmt));
                 boolean add_true_branch = false, add_false_branch = false;
                 if (eval_result.isConstant()) {
                     if (eval_result.getConstant() == 0) {
@@ -101,7 +161,7 @@ public class DeadCodeDetection extends MethodAnalysis {
                     }
                 }
             } else if (cur_stmt instanceof SwitchStmt) {
-                Value eval_result = ConstantPropagation.evaluate(((SwitchStmt) cur_stmt).getVar(), constants.getOutFact(cur_stmt));
+                Value eval_result = transfers.evaluateCondition(cur_stmt, constants.getOutFact(cur_stmt));
                 if (eval_result.isConstant()) {
                     int eval_value = eval_result.getConstant();
                     boolean find_branch = false;
@@ -148,28 +208,6 @@ public class DeadCodeDetection extends MethodAnalysis {
                 deadCode.add(stmt);
             }
         }
-
-//        System.out.printf("11: %d\n", deadCode.size());
-
-        // unused assignment
-        for (Stmt stmt : ir.getStmts()) {
-            if (deadCode.contains(stmt)) continue;
-
-            if (!(stmt instanceof AssignStmt<?,?>)) continue;
-
-            LValue lValue = ((AssignStmt<?, ?>) stmt).getLValue();
-            if (!(lValue instanceof  Var)) continue;
-
-            RValue rValue = ((AssignStmt<?, ?>) stmt).getRValue();
-            if (!hasNoSideEffect(rValue)) continue;
-
-            if (!liveVars.getOutFact(stmt).contains((Var) lValue)) {
-                deadCode.add(stmt);
-            }
-        }
-
-//        System.out.printf("22: %d\n", deadCode.size());
-        return deadCode;
     }
 
     /**
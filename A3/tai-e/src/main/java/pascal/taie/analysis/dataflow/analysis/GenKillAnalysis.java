@@ -0,0 +1,152 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Template for gen/kill data-flow problems, whose transfer functions
+ * are in form of {@code OUT = gen ∪ (IN - kill)} for forward analysis,
+ * and {@code IN = gen ∪ (OUT - kill)} for backward analysis.
+ * <p>
+ * The gen and kill sets of the nodes of a CFG are computed only once,
+ * cached in the IR of the CFG, and reused in all iterations and by all
+ * instances of the same analysis on the IR whose facts are of the same
+ * kind. If the facts created by {@link #newInitialFact(CFG)} are
+ * {@link BitSetFact}s, then the gen and kill sets are bit sets too,
+ * and the transfer functions are performed word by word.
+ *
+ * @param <Node> type of CFG nodes
+ * @param <E>    type of elements of the facts
+ */
+public abstract class GenKillAnalysis<Node, E>
+        extends AbstractDataflowAnalysis<Node, SetFact<E>> {
+
+    /**
+     * Key of the gen and kill sets cached in IRs, which contains the kind
+     * of the facts of this analysis, as instances with different kinds
+     * of facts (e.g., with and without bit sets) may analyze the same IR.
+     * It is initialized when the first CFG is analyzed.
+     */
+    private volatile String summariesKey;
+
+    protected GenKillAnalysis(AnalysisConfig config) {
+        super(config);
+    }
+
+    /**
+     * Computes the gen and kill sets of given node.
+     *
+     * @param node the node
+     * @param gen  the set to which elements generated by node are added
+     * @param kill the set to which elements killed by node are added
+     */
+    protected abstract void computeGenKill(Node node, SetFact<E> gen, SetFact<E> kill);
+
+    /**
+     * @return the gen and kill sets of the nodes of given CFG, which are
+     * computed on the first call and then cached in the IR.
+     */
+    private Map<Node, GenKill<E>> getSummaries(CFG<Node> cfg) {
+        IR ir = cfg.getIR();
+        String key = summariesKey;
+        if (key == null) {
+            key = getId() + ".gen-kill." +
+                    newInitialFact(cfg).getClass().getName();
+            summariesKey = key;
+        }
+        return ir.getResult(key, () -> {
+            Map<Node, GenKill<E>> summaries = Maps.newMap(cfg.getNumberOfNodes());
+            for (Node node : cfg) {
+                summaries.put(node, summarize(node,
+                        newInitialFact(cfg), newInitialFact(cfg)));
+            }
+            return summaries;
+        });
+    }
+
+    private GenKill<E> summarize(Node node, SetFact<E> gen, SetFact<E> kill) {
+        computeGenKill(node, gen, kill);
+        return new GenKill<>(gen, kill);
+    }
+
+    /**
+     * Transfer function for the nodes outside the solvers, which computes
+     * the gen and kill sets of given node on the fly.
+     */
+    @Override
+    public boolean transferNode(Node node, SetFact<E> in, SetFact<E> out) {
+        return transfer(summarize(node, newInitialFact(), newInitialFact()), in, out);
+    }
+
+    @Override
+    public boolean transferNode(CFG<Node> cfg, Node node, SetFact<E> in, SetFact<E> out) {
+        return transfer(getSummaries(cfg).get(node), in, out);
+    }
+
+    private boolean transfer(GenKill<E> genKill, SetFact<E> in, SetFact<E> out) {
+        return isForward() ?
+                transfer(in, genKill, out) :
+                transfer(out, genKill, in);
+    }
+
+    /**
+     * Sets target to {@code gen ∪ (source - kill)}.
+     *
+     * @return true if target changed, otherwise false.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> boolean transfer(
+            SetFact<E> source, GenKill<E> genKill, SetFact<E> target) {
+        SetFact<E> gen = genKill.gen();
+        SetFact<E> kill = genKill.kill();
+        if (target instanceof BitSetFact bitTarget &&
+                source instanceof BitSetFact bitSource &&
+                gen instanceof BitSetFact bitGen &&
+                kill instanceof BitSetFact bitKill) {
+            return bitTarget.setGenKill(bitSource, bitGen, bitKill);
+        }
+        boolean changed = target.removeIf(e -> !gen.contains(e) &&
+                (kill.contains(e) || !source.contains(e)));
+        for (E e : (Iterable<E>) source.stream()::iterator) {
+            if (!kill.contains(e)) {
+                changed |= target.add(e);
+            }
+        }
+        changed |= target.union(gen);
+        return changed;
+    }
+
+    /**
+     * Gen and kill sets of a node.
+     */
+    private record GenKill<E>(SetFact<E> gen, SetFact<E> kill) {
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Demand-driven liveness queries on a method, for the clients which only
+ * ask whether a few variables are live at a few statements.
+ * <p>
+ * A query searches the CFG forward from the query point for a use of
+ * the variable which is not preceded by a definition of it. The answers
+ * are memoized not only for the query point, but also for the statements
+ * visited by the search, and later searches stop at the statements whose
+ * answers are known. If the result of {@link LiveVariableAnalysis} is
+ * available in the IR, the queries are answered by it. Otherwise, only
+ * after the number of (non-memoized) queries exceeds a threshold, the
+ * liveness of the whole method is solved (without being stored in the IR)
+ * and the later queries are answered by it. The answers are the same as
+ * the OUT facts of {@link LiveVariableAnalysis}.
+ * <p>
+ * The queries are cached in the IR like its results, thus they should
+ * be issued by the thread analyzing the IR.
+ */
+public final class LivenessQuery {
+
+    /**
+     * Key of the queries in the results of IR.
+     */
+    public static final String ID = LiveVariableAnalysis.ID + ".query";
+
+    /**
+     * Default number of queries answered by searching the CFG.
+     */
+    public static final int DEFAULT_THRESHOLD = 16;
+
+    private final IR ir;
+
+    private final CFG<Stmt> cfg;
+
+    private final int threshold;
+
+    /**
+     * Memoized answers, i.e., whether a variable is live after a statement.
+     */
+    private final Map<Var, Map<Stmt, Boolean>> answers = Maps.newMap();
+
+    /**
+     * Number of queries answered by searching the CFG.
+     */
+    private int queries;
+
+    /**
+     * Liveness of the whole method, or {@code null} if it is not
+     * computed yet.
+     */
+    private DataflowResult<Stmt, SetFact<Var>> result;
+
+    /**
+     * @param ir        the IR to be queried, whose CFG must have been built
+     * @param threshold number of queries answered by searching the CFG,
+     *                  after which the whole method is analyzed
+     */
+    public LivenessQuery(IR ir, int threshold) {
+        this.ir = ir;
+        this.cfg = ir.getResult(CFGBuilder.ID);
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the liveness queries of given IR with the default threshold,
+     * which are created at the first call and then cached in the IR.
+     */
+    public static LivenessQuery of(IR ir) {
+        return ir.getResult(ID, () -> new LivenessQuery(ir, DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * @return true if var is live after stmt, i.e., the value of var
+     * after stmt may be used later, otherwise false.
+     */
+    public boolean isLive(Var var, Stmt stmt) {
+        if (result == null) {
+            result = ir.getResult(LiveVariableAnalysis.ID);
+        }
+        if (result != null) {
+            answers.clear();
+            return result.getOutFact(stmt).contains(var);
+        }
+        Map<Stmt, Boolean> varAnswers = answers.computeIfAbsent(var, v -> Maps.newMap());
+        Boolean live = varAnswers.get(stmt);
+        if (live == null) {
+            if (++queries > threshold) {
+                result = new LiveVariableAnalysis(new AnalysisConfig(
+                        LiveVariableAnalysis.ID, "strongly", false, "bitset", true))
+                        .solve(ir);
+                answers.clear();
+                return result.getOutFact(stmt).contains(var);
+            }
+            live = searchUse(var, stmt, varAnswers);
+        }
+        return live;
+    }
+
+    /**
+     * Searches the paths from the successors of stmt for a use of var,
+     * where each path stops at the statements defining var, or at the
+     * statements whose answers are memoized in varAnswers. The answers
+     * of stmt and of the statements found by the search are memoized
+     * in varAnswers.
+     *
+     * @return true if such a use is found, otherwise false.
+     */
+    private boolean searchUse(Var var, Stmt stmt, Map<Stmt, Boolean> varAnswers) {
+        // maps each visited statement to the statement from which
+        // it is reached, so that the path to a use can be recovered
+        Map<Stmt, Stmt> parents = Maps.newMap();
+        List<Stmt> expanded = new ArrayList<>();
+        Queue<Stmt> workList = new ArrayDeque<>();
+        expand(stmt, parents, workList);
+        while (!workList.isEmpty()) {
+            Stmt s = workList.poll();
+            if (s.getUses().contains(var)) {
+                // var is live before s, thus it is live after
+                // all statements on the path to s
+                markPath(parents.get(s), stmt, parents, varAnswers);
+                return true;
+            }
+            if (cfg.isExit(s) || s.getDef().orElse(null) == var) {
+                continue;
+            }
+            Boolean live = varAnswers.get(s);
+            if (live != null) {
+                if (live) {
+                    markPath(s, stmt, parents, varAnswers);
+                    return true;
+                }
+                continue;
+            }
+            expanded.add(s);
+            expand(s, parents, workList);
+        }
+        // var is dead before all visited statements, thus it is also
+        // dead after the expanded ones, whose successors are all visited
+        varAnswers.put(stmt, false);
+        expanded.forEach(s -> varAnswers.put(s, false));
+        return false;
+    }
+
+    private void expand(Stmt stmt, Map<Stmt, Stmt> parents, Queue<Stmt> workList) {
+        for (Stmt succ : cfg.getSuccsOf(stmt)) {
+            if (!parents.containsKey(succ)) {
+                parents.put(succ, stmt);
+                workList.add(succ);
+            }
+        }
+    }
+
+    /**
+     * Memoizes that the variable is live after the statements on the path
+     * from the query point to given statement (both inclusive).
+     */
+    private static void markPath(Stmt stmt, Stmt queryPoint,
+                                 Map<Stmt, Stmt> parents,
+                                 Map<Stmt, Boolean> varAnswers) {
+        for (Stmt s = stmt; ; s = parents.get(s)) {
+            varAnswers.put(s, true);
+            if (s == queryPoint) {
+                break;
+            }
+        }
+    }
+}
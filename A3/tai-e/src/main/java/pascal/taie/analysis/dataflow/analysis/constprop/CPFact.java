@@ -22,11 +22,9 @@
 
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
-import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.fact.PersistentMapFact;
 import pascal.taie.ir.exp.Var;
-
-import java.util.Collections;
-import java.util.Map;
+import pascal.taie.util.collection.PersistentMap;
 
 /**
  * Represents data facts of constant propagation, which maps variables
@@ -37,14 +35,21 @@ import java.util.Map;
  * it represents that the lattice value of the variable is UNDEF;
  * moreover, if we set the lattice value of a variable to UNDEF,
  * it effectively removes the variable from the CPFact.
+ * <p>
+ * CPFact is backed by a persistent map, so that {@link #copy()} takes
+ * constant time and the copy shares unchanged mappings with this fact.
  */
-public class CPFact extends MapFact<Var, Value> {
+public class CPFact extends PersistentMapFact<Var, Value> {
 
     public CPFact() {
-        this(Collections.emptyMap());
+        this(new PersistentMap<>());
     }
 
-    private CPFact(Map<Var, Value> map) {
+    /**
+     * @param map the map which backs this fact, or null for the subclasses
+     *            which keep the values in their own representations.
+     */
+    protected CPFact(PersistentMap<Var, Value> map) {
         super(map);
     }
 
@@ -71,6 +76,6 @@ public class CPFact extends MapFact<Var, Value> {
 
     @Override
     public CPFact copy() {
-        return new CPFact(this.map);
+        return new CPFact(persistentMap().copy());
     }
 }
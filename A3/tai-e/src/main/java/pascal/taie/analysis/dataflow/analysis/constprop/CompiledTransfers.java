@@ -0,0 +1,407 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BitwiseExp;
+import pascal.taie.ir.exp.ConditionExp;
+import pascal.taie.ir.exp.Exp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.ShiftExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
+
+import java.util.List;
+
+/**
+ * Transfer functions of the statements of an {@link IR} for constant
+ * propagation, which are compiled once per IR and cached in the IR.
+ * <p>
+ * Instead of dispatching on the kind and the operator of an expression
+ * every time it is evaluated, each statement which defines an int
+ * variable is compiled into a {@link Transfer} holding the defined
+ * variable and an {@link Evaluator} specialized for the right-hand
+ * side, e.g., a separate evaluator for each binary operator; the
+ * conditions of {@link If}s and the variables of {@link SwitchStmt}s
+ * are compiled likewise. Each evaluator reads each operand from the
+ * fact only once, and computes on the values encoded by
+ * {@link PackedValue}. The evaluators given by {@link #of(IR)} read the
+ * operands by {@link CPFact#get(Var)} and work on any {@link CPFact},
+ * while the ones given by {@link #ofDense(IR)} read the packed values
+ * of {@link DenseCPFact}s directly, so that the kind of the facts is
+ * decided once when the evaluators are compiled, instead of on every
+ * read of an operand.
+ */
+public final class CompiledTransfers {
+
+    private static final String KEY = ConstantPropagation.ID + ".transfers";
+
+    private static final String DENSE_KEY = KEY + ".dense";
+
+    private static final Evaluator NAC = in -> PackedValue.NAC;
+
+    /**
+     * Transfers of the statements, indexed by statement indexes.
+     */
+    private final Transfer[] transfers;
+
+    /**
+     * Evaluators of the conditions of branch statements, indexed by
+     * statement indexes, and {@code null} for the other statements.
+     */
+    private final Evaluator[] conditions;
+
+    private CompiledTransfers(IR ir, boolean dense) {
+        List<Stmt> stmts = ir.getStmts();
+        transfers = new Transfer[stmts.size()];
+        conditions = new Evaluator[stmts.size()];
+        for (Stmt stmt : stmts) {
+            transfers[stmt.getIndex()] = compile(stmt, dense);
+            if (stmt instanceof If ifStmt) {
+                conditions[stmt.getIndex()] = compile(ifStmt.getCondition(), dense);
+            } else if (stmt instanceof SwitchStmt switchStmt) {
+                conditions[stmt.getIndex()] = compile(switchStmt.getVar(), dense);
+            }
+        }
+    }
+
+    /**
+     * @return the compiled transfers of given IR, which work on any
+     * {@link CPFact}, and are compiled on the first call and then reused.
+     */
+    public static CompiledTransfers of(IR ir) {
+        return of(ir, KEY, false);
+    }
+
+    /**
+     * @return the compiled transfers of given IR, which only work on
+     * {@link DenseCPFact}s, and are compiled on the first call and
+     * then reused.
+     */
+    public static CompiledTransfers ofDense(IR ir) {
+        return of(ir, DENSE_KEY, true);
+    }
+
+    private static CompiledTransfers of(IR ir, String key, boolean dense) {
+        CompiledTransfers transfers = ir.getResult(key);
+        if (transfers == null) {
+            transfers = new CompiledTransfers(ir, dense);
+            ir.storeResult(key, transfers);
+        }
+        return transfers;
+    }
+
+    /**
+     * @return the transfer of given statement. For the statements outside
+     * the IR, e.g., the entry and exit nodes of the CFG, returns
+     * {@link Transfer#IDENTITY}.
+     */
+    Transfer getTransfer(Stmt stmt) {
+        int index = stmt.getIndex();
+        return index < transfers.length ? transfers[index] : Transfer.IDENTITY;
+    }
+
+    /**
+     * Evaluates the condition of given branch statement, i.e., the
+     * condition of an {@link If} or the variable of a {@link SwitchStmt}.
+     *
+     * @param stmt the branch statement
+     * @param in   IN fact of the statement
+     * @return the resulting {@link Value}
+     */
+    public Value evaluateCondition(Stmt stmt, CPFact in) {
+        return PackedValue.decode(evaluateConditionPacked(stmt, in));
+    }
+
+    /**
+     * @return the encoded value of the condition of given branch statement.
+     */
+    long evaluateConditionPacked(Stmt stmt, CPFact in) {
+        return conditions[stmt.getIndex()].evaluatePacked(in);
+    }
+
+    /**
+     * Compiles the transfer function of given statement,
+     * which works on any {@link CPFact}.
+     */
+    static Transfer compile(Stmt stmt) {
+        return compile(stmt, false);
+    }
+
+    /**
+     * Compiles the transfer function of given statement.
+     *
+     * @param dense whether the transfer only works on {@link DenseCPFact}s
+     */
+    private static Transfer compile(Stmt stmt, boolean dense) {
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt &&
+                defStmt.getLValue() instanceof Var def &&
+                ConstantPropagation.canHoldInt(def)) {
+            return new Transfer(def, compile(defStmt.getRValue(), dense));
+        }
+        return Transfer.IDENTITY;
+    }
+
+    /**
+     * Compiles given expression into an evaluator which works on any
+     * {@link CPFact}. This is the only implementation of the evaluation
+     * of expressions for constant propagation, which
+     * {@link ConstantPropagation#evaluate} delegates to.
+     */
+    public static Evaluator compile(Exp exp) {
+        return compile(exp, false);
+    }
+
+    /**
+     * Compiles given expression into an evaluator.
+     *
+     * @param dense whether the evaluator only works on {@link DenseCPFact}s
+     */
+    public static Evaluator compile(Exp exp, boolean dense) {
+        if (exp instanceof IntLiteral literal) {
+            long value = PackedValue.makeConstant(literal.getValue());
+            return in -> value;
+        } else if (exp instanceof Var var) {
+            return operand(var, dense)::read;
+        } else if (exp instanceof ArithmeticExp arith) {
+            Operand x = operand(arith.getOperand1(), dense);
+            Operand y = operand(arith.getOperand2(), dense);
+            return switch (arith.getOperator()) {
+                case ADD -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) + get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case SUB -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) - get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case MUL -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) * get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case DIV -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    if (isZero(v2)) {
+                        return PackedValue.UNDEF;
+                    }
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) / get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case REM -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    if (isZero(v2)) {
+                        return PackedValue.UNDEF;
+                    }
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) % get(v2)) :
+                            nonConstant(v1, v2);
+                };
+            };
+        } else if (exp instanceof ConditionExp cond) {
+            Operand x = operand(cond.getOperand1(), dense);
+            Operand y = operand(cond.getOperand2(), dense);
+            return switch (cond.getOperator()) {
+                case EQ -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) == get(v2)) : nonConstant(v1, v2);
+                };
+                case NE -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) != get(v2)) : nonConstant(v1, v2);
+                };
+                case LT -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) < get(v2)) : nonConstant(v1, v2);
+                };
+                case GT -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) > get(v2)) : nonConstant(v1, v2);
+                };
+                case LE -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) <= get(v2)) : nonConstant(v1, v2);
+                };
+                case GE -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            bool(get(v1) >= get(v2)) : nonConstant(v1, v2);
+                };
+            };
+        } else if (exp instanceof ShiftExp shift) {
+            Operand x = operand(shift.getOperand1(), dense);
+            Operand y = operand(shift.getOperand2(), dense);
+            return switch (shift.getOperator()) {
+                case SHL -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) << get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case SHR -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) >> get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case USHR -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) >>> get(v2)) :
+                            nonConstant(v1, v2);
+                };
+            };
+        } else if (exp instanceof BitwiseExp bitwise) {
+            Operand x = operand(bitwise.getOperand1(), dense);
+            Operand y = operand(bitwise.getOperand2(), dense);
+            return switch (bitwise.getOperator()) {
+                case OR -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) | get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case AND -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) & get(v2)) :
+                            nonConstant(v1, v2);
+                };
+                case XOR -> in -> {
+                    long v1 = x.read(in), v2 = y.read(in);
+                    return areConstants(v1, v2) ?
+                            PackedValue.makeConstant(get(v1) ^ get(v2)) :
+                            nonConstant(v1, v2);
+                };
+            };
+        } else {
+            return NAC;
+        }
+    }
+
+    /**
+     * @param dense whether the operand only reads {@link DenseCPFact}s
+     * @return the operand which reads the value of given variable.
+     */
+    private static Operand operand(Var var, boolean dense) {
+        if (dense) {
+            int index = var.getIndex();
+            return in -> ((DenseCPFact) in).getPacked(index);
+        } else {
+            return in -> PackedValue.encode(in.get(var));
+        }
+    }
+
+    private static boolean areConstants(long v1, long v2) {
+        return PackedValue.isConstant(v1) && PackedValue.isConstant(v2);
+    }
+
+    private static boolean isZero(long value) {
+        return PackedValue.isConstant(value) && PackedValue.getConstant(value) == 0;
+    }
+
+    private static int get(long value) {
+        return PackedValue.getConstant(value);
+    }
+
+    private static long bool(boolean value) {
+        return PackedValue.makeConstant(value ? 1 : 0);
+    }
+
+    /**
+     * @return the result of a binary expression whose operands are
+     * not both constants, i.e., NAC if any operand is NAC, otherwise UNDEF.
+     */
+    private static long nonConstant(long v1, long v2) {
+        return PackedValue.isNAC(v1) || PackedValue.isNAC(v2) ?
+                PackedValue.NAC : PackedValue.UNDEF;
+    }
+
+    /**
+     * Reader of the value of a variable from the facts.
+     */
+    @FunctionalInterface
+    private interface Operand {
+
+        /**
+         * @return the encoded value of the variable in given fact.
+         */
+        long read(CPFact in);
+    }
+
+    /**
+     * Compiled evaluator of an expression.
+     */
+    @FunctionalInterface
+    public interface Evaluator {
+
+        /**
+         * @return the value of the expression under given fact,
+         * encoded by {@link PackedValue}.
+         */
+        long evaluatePacked(CPFact in);
+
+        /**
+         * @return the value of the expression under given fact.
+         */
+        default Value evaluate(CPFact in) {
+            return PackedValue.decode(evaluatePacked(in));
+        }
+    }
+
+    /**
+     * Compiled transfer function of a statement, which sets the defined
+     * variable to the value of the right-hand side, and keeps the other
+     * variables unchanged.
+     *
+     * @param def the defined variable, or {@code null} if the statement
+     *            does not define an int variable.
+     * @param rhs evaluator of the right-hand side
+     */
+    record Transfer(Var def, Evaluator rhs) {
+
+        /**
+         * Transfer of the statements which do not define int variables.
+         */
+        static final Transfer IDENTITY = new Transfer(null, null);
+
+        boolean isIdentity() {
+            return def == null;
+        }
+    }
+}
@@ -23,27 +23,155 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
+import pascal.taie.analysis.dataflow.fact.SetFact;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
-import pascal.taie.ir.stmt.DefinitionStmt;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 import pascal.taie.util.AnalysisException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Implementation of intraprocedural constant propagation for int values.
+ * <p>
+ * When option {@code dense} is enabled, the facts are represented by
+ * {@link DenseCPFact}s, and meet and transfer functions work on the
+ * encoded values directly without allocating {@link Value}s.
+ * <p>
+ * When option {@code prune-dead-vars} is enabled, the variables which are
+ * dead (according to the result of {@link LiveVariableAnalysis}) at the end
+ * of each basic block are dropped from the OUT fact of the block, except
+ * the variables used by the last statement of the block, e.g., the operands
+ * of the condition of a branch. As dead variables have no uses before being
+ * redefined, the values of the live variables are unchanged, while the
+ * facts stay small on long methods. The pruning is performed by the solvers
+ * via {@link #transferNode(CFG, Stmt, CPFact, CPFact)}, thus it also applies
+ * to {@link #reanalyze} and to the facts computed lazily by the solvers.
+ * <p>
+ * The transfer functions of the statements are compiled by
+ * {@link CompiledTransfers} once per IR, and reused in all iterations.
+ */
 public class ConstantPropagation extends
         AbstractDataflowAnalysis<Stmt, CPFact> {
 
     public static final String ID = "constprop";
 
+    /**
+     * Key of the variables kept in the OUT facts, which are cached in IRs.
+     */
+    private static final String LIVE_OUTS = ID + ".live-outs";
+
+    /**
+     * Whether to represent facts by dense primitive arrays.
+     */
+    private final boolean dense;
+
+    /**
+     * Analysis for computing live variables if they are not available
+     * in the IR, or {@code null} if dead variables are not pruned.
+     */
+    private final LiveVariableAnalysis liveVariableAnalysis;
+
     public ConstantPropagation(AnalysisConfig config) {
         super(config);
+        dense = getOptions().getBooleanOrDefault("dense", false);
+        liveVariableAnalysis = getOptions().getBooleanOrDefault("prune-dead-vars", false) ?
+                new LiveVariableAnalysis(new AnalysisConfig(LiveVariableAnalysis.ID,
+                        "strongly", false, "bitset", true)) :
+                null;
+    }
+
+    /**
+     * @return the indexes of the variables to be kept in the OUT facts of
+     * the statements of given CFG, indexed by statement indexes, which are
+     * computed on the first call and then cached in the IR. For the
+     * statements at the end of basic blocks, the kept variables are the
+     * live variables after the statements and the variables used by the
+     * statements themselves, as clients (e.g., {@link
+     * pascal.taie.analysis.dataflow.analysis.DeadCodeDetection}) evaluate
+     * the conditions of branches on their OUT facts. For the other
+     * statements, the entries are {@code null}, i.e., nothing is pruned.
+     */
+    private BitSet[] getLiveOuts(CFG<Stmt> cfg) {
+        IR ir = cfg.getIR();
+        return ir.getResult(LIVE_OUTS, () -> computeLiveOuts(cfg));
+    }
+
+    /**
+     * @return true if dead variables have been pruned from the facts of
+     * any analysis on given IR, in which case the result of constant
+     * propagation stored in the IR may lack the values of dead variables.
+     */
+    static boolean hasPrunedFacts(IR ir) {
+        return ir.getResult(LIVE_OUTS) != null;
+    }
+
+    private BitSet[] computeLiveOuts(CFG<Stmt> cfg) {
+        IR ir = cfg.getIR();
+        DataflowResult<Stmt, SetFact<Var>> liveVars =
+                ir.getResult(LiveVariableAnalysis.ID);
+        if (liveVars == null) {
+            liveVars = liveVariableAnalysis.solve(ir);
+        }
+        BitSet[] liveOuts = new BitSet[ir.getStmts().size()];
+        for (Stmt stmt : ir) {
+            SetFact<Var> liveOut = liveVars.getOutFact(stmt);
+            if (liveOut != null && isBlockEnd(cfg, stmt)) {
+                BitSet indexes = new BitSet(ir.getVars().size());
+                liveOut.stream().forEach(var -> indexes.set(var.getIndex()));
+                stmt.getUses().forEach(exp -> {
+                    if (exp instanceof Var var) {
+                        indexes.set(var.getIndex());
+                    }
+                });
+                liveOuts[stmt.getIndex()] = indexes;
+            }
+        }
+        return liveOuts;
+    }
+
+    /**
+     * @return true if given statement is the last one of its basic block,
+     * i.e., it does not flow into exactly one statement which has
+     * no other predecessors.
+     */
+    private static boolean isBlockEnd(CFG<Stmt> cfg, Stmt stmt) {
+        if (cfg.getOutDegreeOf(stmt) != 1) {
+            return true;
+        }
+        Stmt succ = cfg.getSuccsOf(stmt).iterator().next();
+        return cfg.getInDegreeOf(succ) != 1;
+    }
+
+    /**
+     * Removes the dead variables, i.e., the ones whose indexes are not
+     * in liveVars, from given fact.
+     *
+     * @return the given fact.
+     */
+    private static CPFact prune(CPFact fact, BitSet liveVars) {
+        List<Var> deadVars = new ArrayList<>();
+        for (Var var : fact.keySet()) {
+            if (!liveVars.get(var.getIndex())) {
+                deadVars.add(var);
+            }
+        }
+        deadVars.forEach(fact::remove);
+        return fact;
     }
 
     @Override
@@ -54,7 +182,7 @@ public class ConstantPropagation extends
     @Override
     public CPFact newBoundaryFact(CFG<Stmt> cfg) {
         // 将方法的参数设置为NAC，避免直接被优化掉
-        CPFact res = new CPFact();
+        CPFact res = newInitialFact(cfg);
         IR ir = cfg.getIR();
         List<Var> paras = ir.getParams();
         for (Var para : paras) {
@@ -72,8 +200,35 @@ public class ConstantPropagation extends
         return new CPFact();
     }
 
+    @Override
+    public CPFact newInitialFact(CFG<Stmt> cfg) {
+        if (dense) {
+            IR ir = cfg.getIR();
+            return new DenseCPFact(ir.getVars().size(), ir::getVar);
+        } else {
+            return newInitialFact();
+        }
+    }
+
+    @Override
+    protected FactCodec<Stmt, CPFact> getFactCodec() {
+        return new CPFactCodec();
+    }
+
     @Override
     public void meetInto(CPFact fact, CPFact target) {
+        if (fact instanceof DenseCPFact denseFact &&
+                target instanceof DenseCPFact denseTarget) {
+            denseFact.meetInto(denseTarget);
+            return;
+        }
+        if (target.isEmpty()) {
+            // all variables in target are UNDEF, and meeting any value
+            // with UNDEF gives the value itself, thus target can simply
+            // share the content of fact
+            target.copyFrom(fact);
+            return;
+        }
         Set<Var> keys = fact.keySet();
         // 只需要遍历fact的key即可，因为对应在target而没有在fact里的key，
         // value不需要修改
@@ -106,45 +261,114 @@ public class ConstantPropagation extends
         }
     }
 
-    private boolean compare(CPFact new_out, CPFact out) {
-        if (new_out.equals(out)) {
-            return false;
-        } else {
-            out.copyFrom(new_out);
-            return true;
-        }
+    /**
+     * Copies the new OUT fact into OUT fact. The change is reported by the
+     * updates actually made to OUT fact, instead of comparing the whole facts
+     * by {@link CPFact#equals(Object)}; as the facts share the unchanged parts
+     * of their persistent maps, the copy only visits the changed mappings.
+     *
+     * @return true if OUT fact changed, otherwise false.
+     */
+    private static boolean compare(CPFact new_out, CPFact out) {
+        return out.copyFrom(new_out);
     }
 
+    /**
+     * Transfer function for the statements outside the solvers, which
+     * compiles the transfer of given statement on the fly and does not
+     * prune dead variables, as the statement has no reference to its IR.
+     */
     @Override
     public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
-        // 不考虑不是赋值语句的表达式
-        if (!(stmt instanceof DefinitionStmt<?,?>)) {
-            return compare(in, out);
+        return transferNode(CompiledTransfers.compile(stmt), in, out, null);
+    }
+
+    @Override
+    public boolean transferNode(CFG<Stmt> cfg, Stmt stmt, CPFact in, CPFact out) {
+        BitSet liveOut = null;
+        if (liveVariableAnalysis != null && !cfg.isEntry(stmt) && !cfg.isExit(stmt)) {
+            liveOut = getLiveOuts(cfg)[stmt.getIndex()];
         }
-        Optional<LValue> def = stmt.getDef();
-        // 当时invoke函数的时候，def为空
-        if (def.isEmpty()) {
-            return compare(in, out);
+        IR ir = cfg.getIR();
+        // the kind of the facts decides which evaluators to use, so that
+        // the evaluators do not check the kind on every read of an operand
+        if (in instanceof DenseCPFact denseIn &&
+                out instanceof DenseCPFact denseOut) {
+            return transferNode(CompiledTransfers.ofDense(ir).getTransfer(stmt),
+                    denseIn, denseOut, liveOut);
         }
-        LValue def_ = def.get();
-        // 对于赋值类型的语句，只处理左边为Var的类型，
-        // 对于字段存储等类型，不进行处理。
-        if (!(def_ instanceof  Var)) {
-            return compare(in, out);
+        return transferNode(CompiledTransfers.of(ir).getTransfer(stmt),
+                in, out, liveOut);
+    }
+
+    private boolean transferNode(CompiledTransfers.Transfer transfer,
+            CPFact in, CPFact out, BitSet liveOut) {
+        if (in instanceof DenseCPFact denseIn &&
+                out instanceof DenseCPFact denseOut) {
+            return transferNode(transfer, denseIn, denseOut, liveOut);
         }
-        // 只处理int类型的变量
-        if (!canHoldInt((Var)def_)){
-            return compare(in, out);
+        // 只处理定义int类型变量的语句，其他语句直接将IN传给OUT
+        if (transfer.isIdentity()) {
+            return compareLive(in, out, liveOut);
         }
         CPFact new_out = in.copy();
-        // 将对def_的定义进行删除
-        new_out.remove((Var)def_);
-        RValue r_expr = ((DefinitionStmt<?, ?>)stmt).getRValue();
-        new_out.update((Var)def_, evaluate(r_expr, in));
+        new_out.update(transfer.def(), transfer.rhs().evaluate(in));
+        if (liveOut != null) {
+            prune(new_out, liveOut);
+        }
         // 判断新的out和之前的out是否相同
         return compare(new_out, out);
     }
 
+    /**
+     * Compares the new OUT fact with OUT fact like {@link #compare}, after
+     * pruning the dead variables from new OUT fact if liveOut is given.
+     */
+    private boolean compareLive(CPFact new_out, CPFact out, BitSet liveOut) {
+        return compare(liveOut == null ? new_out : prune(new_out.copy(), liveOut), out);
+    }
+
+    /**
+     * Transfer function on dense facts, which behaves the same as
+     * computing the new OUT fact and then {@link #compare}-ing it with
+     * the old one, but neither copies IN fact nor allocates {@link Value}s.
+     */
+    static boolean transferNode(
+            CompiledTransfers.Transfer transfer, DenseCPFact in, DenseCPFact out) {
+        return transferNode(transfer, in, out, null);
+    }
+
+    /**
+     * Transfer function on dense facts, which also prunes the variables
+     * absent in liveOut from the new OUT fact if liveOut is not {@code null}.
+     */
+    private static boolean transferNode(CompiledTransfers.Transfer transfer,
+            DenseCPFact in, DenseCPFact out, BitSet liveOut) {
+        int defIndex = -1;
+        long defValue = PackedValue.UNDEF;
+        if (!transfer.isIdentity()) {
+            defIndex = transfer.def().getIndex();
+            defValue = transfer.rhs().evaluatePacked(in);
+        }
+        boolean changed = false;
+        int capacity = Math.max(Math.max(in.capacity(), out.capacity()), defIndex + 1);
+        for (int i = 0; i < capacity; ++i) {
+            long newValue = i == defIndex ? defValue : in.getPacked(i);
+            if (liveOut != null && !liveOut.get(i)) {
+                newValue = PackedValue.UNDEF;
+            }
+            if (newValue != out.getPacked(i)) {
+                changed = true;
+                // like CPFact.copyFrom(), the mappings absent
+                // in the new OUT fact are kept in OUT fact
+                if (!PackedValue.isUndef(newValue)) {
+                    out.setPacked(i, newValue);
+                }
+            }
+        }
+        return changed;
+    }
+
     /**
      * @return true if the given variable can hold integer value, otherwise false.
      */
@@ -164,139 +388,60 @@ public class ConstantPropagation extends
     }
 
     /**
-     * Evaluates the {@link Value} of given expression.
+     * Evaluates the {@link Value} of given expression by the evaluator
+     * compiled by {@link CompiledTransfers#compile(Exp)}. The transfer
+     * functions use the evaluators compiled once per IR instead.
      *
      * @param exp the expression to be evaluated
      * @param in  IN fact of the statement
      * @return the resulting {@link Value}
      */
     public static Value evaluate(Exp exp, CPFact in) {
-        Value res = null;
-        boolean flag = true;
-        if (exp instanceof IntLiteral) {
-            // 如果右侧是一个常量表达式的话
-            res = Value.makeConstant(((IntLiteral)exp).getValue());
-        } else if (exp instanceof Var) {
-            // 如果右侧是一个变量的话
-            res = in.get((Var)exp);
-        } else if (exp instanceof ArithmeticExp) {
-            // 算术表达式
-            Var var1 = ((ArithmeticExp) exp).getOperand1();
-            Var var2 = ((ArithmeticExp) exp).getOperand2();
-            ArithmeticExp.Op op = ((ArithmeticExp) exp).getOperator();
-            if (in.get(var2).isConstant() && in.get(var2).getConstant() == 0 && (op == ArithmeticExp.Op.DIV || op == ArithmeticExp.Op.REM)) {
-                res = Value.getUndef();
-            } else if (in.get(var1).isConstant() && in.get(var2).isConstant()) {
-                // 两个都是常量的情况
-                int val = 0;
-                int val1 =  in.get(var1).getConstant();
-                int val2 = in.get(var2).getConstant();
-                if (op == ArithmeticExp.Op.ADD) {
-                    val = val1 + val2;
-                } else if (op == ArithmeticExp.Op.SUB) {
-                    val = val1 - val2;
-                } else if (op == ArithmeticExp.Op.MUL) {
-                    val = val1 * val2;
-                } else if (op == ArithmeticExp.Op.DIV) {
-                    if (val2 == 0) {
-                        res = Value.getUndef();
-                        flag = false;
-                    } else {
-                        val = val1 / val2;
-                    }
-                } else {
-                    if (val2 == 0) {
-                        res = Value.getUndef();
-                        flag = false;
-                    } else {
-                        val = val1 % val2;
-                    }
-                }
-                if (flag) {
-                    res = Value.makeConstant(val);
-                }
-            } else if (in.get(var1).isNAC() || in.get(var2).isNAC()) {
-                // 有一个不是常量
-                res = Value.getNAC();
-            } else {
-                // 其他情况
-                res = Value.getUndef();
-            }
-        } else if (exp instanceof  ConditionExp) {
-            // 条件表达式
-            Var var1 = ((ConditionExp) exp).getOperand1();
-            Var var2 = ((ConditionExp) exp).getOperand2();
-            ConditionExp.Op op = ((ConditionExp) exp).getOperator();
-            if (in.get(var1).isConstant() && in.get(var2).isConstant()) {
-                int val = 0;
-                int val1 = in.get(var1).getConstant();
-                int val2 = in.get(var2).getConstant();
-                if (op == ConditionExp.Op.EQ) {
-                    if (val1 == val2) val = 1;
-                } else if (op == ConditionExp.Op.NE) {
-                    if (val1 != val2) val = 1;
-                } else if (op == ConditionExp.Op.LT){
-                    if (val1 < val2) val = 1;
-                } else if (op == ConditionExp.Op.GT){
-                    if (val1 > val2) val = 1;
-                } else if (op == ConditionExp.Op.LE) {
-                    if (val1 <= val2) val = 1;
-                } else {
-                    if (val1 >= val2) val = 1;
-                }
-                res = Value.makeConstant(val);
-            } else if (in.get(var1).isNAC() || in.get(var2).isNAC()) {
-                res = Value.getNAC();
-            } else {
-                res = Value.getUndef();
-            }
-        } else if (exp instanceof  ShiftExp) {
-            // 移位表达式
-            Var var1 = ((ShiftExp) exp).getOperand1();
-            Var var2 = ((ShiftExp) exp).getOperand2();
-            ShiftExp.Op op = ((ShiftExp) exp).getOperator();
-            if (in.get(var1).isConstant() && in.get(var2).isConstant()) {
-                int val = 0;
-                int val1 = in.get(var1).getConstant();
-                int val2 = in.get(var2).getConstant();
-                if (op == ShiftExp.Op.SHL) {
-                    val = val1 << val2;
-                } else if (op == ShiftExp.Op.SHR) {
-                    val = val1 >> val2;
+        return CompiledTransfers.compile(exp).evaluate(in);
+    }
+
+    /**
+     * Writes the variables which are not UNDEF in ascending order of
+     * their indexes, each as the difference from the previous index
+     * followed by its value.
+     */
+    private class CPFactCodec implements FactCodec<Stmt, CPFact> {
+
+        private static final int NAC = 0;
+
+        private static final int CONSTANT = 1;
+
+        @Override
+        public void write(CPFact fact, DataOutput out) throws IOException {
+            List<Var> vars = new ArrayList<>(fact.keySet());
+            vars.sort(Comparator.comparingInt(Var::getIndex));
+            FactCodec.writeVarInt(out, vars.size());
+            int last = 0;
+            for (Var var : vars) {
+                FactCodec.writeVarInt(out, var.getIndex() - last);
+                last = var.getIndex();
+                Value value = fact.get(var);
+                if (value.isConstant()) {
+                    out.writeByte(CONSTANT);
+                    out.writeInt(value.getConstant());
                 } else {
-                    val = val1 >>> val2;
+                    out.writeByte(NAC);
                 }
-                res = Value.makeConstant(val);
-            } else if (in.get(var1).isNAC() || in.get(var2).isNAC()) {
-                res = Value.getNAC();
-            } else {
-                res = Value.getUndef();
             }
-        } else if (exp instanceof BitwiseExp) {
-            // 位运算
-            Var var1 = ((BitwiseExp) exp).getOperand1();
-            Var var2 = ((BitwiseExp) exp).getOperand2();
-            BinaryExp.Op op = ((BitwiseExp) exp).getOperator();
-            if (in.get(var1).isConstant() && in.get(var2).isConstant()) {
-                int val = 0;
-                int val1 = in.get(var1).getConstant(), val2 = in.get(var2).getConstant();
-                if (op == BitwiseExp.Op.OR) {
-                    val = val1 | val2;
-                } else if (op == BitwiseExp.Op.AND) {
-                    val =  val1 & val2;
-                } else {
-                    val = val1 ^ val2;
-                }
-                res = Value.makeConstant(val);
-            }  else if (in.get(var1).isNAC() || in.get(var2).isNAC()) {
-                res = Value.getNAC();
-            } else {
-                res = Value.getUndef();
+        }
+
+        @Override
+        public CPFact read(DataInput in, CFG<Stmt> cfg) throws IOException {
+            IR ir = cfg.getIR();
+            CPFact fact = newInitialFact(cfg);
+            int size = FactCodec.readVarInt(in);
+            int index = 0;
+            for (int i = 0; i < size; ++i) {
+                index += FactCodec.readVarInt(in);
+                fact.update(ir.getVar(index), in.readByte() == CONSTANT ?
+                        Value.makeConstant(in.readInt()) : Value.getNAC());
             }
-        } else {
-            // 其他表达式
-            res = Value.getNAC();
+            return fact;
         }
-        return res;
     }
 }
@@ -0,0 +1,283 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Demand-driven constant queries on a method, for the clients which only
+ * ask for the values of a few variables at a few statements.
+ * <p>
+ * A query walks the CFG backward from the query point to the definitions
+ * of the variable reaching the point (or to the method entry), and meets
+ * the values of the definitions, where each definition is evaluated by its
+ * {@link CompiledTransfers compiled transfer} on the values of its operands,
+ * which are queried recursively. The values are memoized, not only for the
+ * query point, but also for the statements through which the value flows
+ * unchanged to it, and later walks stop at the statements whose values are
+ * known. If the result of {@link ConstantPropagation} (without pruning of
+ * dead variables) is available in the IR, the queries are answered by it.
+ * Otherwise, when the definitions depend on each other cyclically (e.g.,
+ * a loop counter), or after the number of (non-memoized) queries exceeds
+ * a threshold, the constants of the whole method are solved (without being
+ * stored in the IR) and the later queries are answered by them. In either
+ * way, the values are the same as the ones given by
+ * {@link ConstantPropagation}.
+ * <p>
+ * The queries are cached in the IR like its results, thus they should
+ * be issued by the thread analyzing the IR.
+ */
+public final class ConstantQuery {
+
+    /**
+     * Key of the queries in the results of IR.
+     */
+    public static final String ID = ConstantPropagation.ID + ".query";
+
+    /**
+     * Default number of queries answered by walking the CFG.
+     */
+    public static final int DEFAULT_THRESHOLD = 16;
+
+    /**
+     * Maximum depth of the recursive queries, beyond which the whole method
+     * is analyzed instead, so that long chains of definitions do not
+     * overflow the call stack.
+     */
+    private static final int MAX_DEPTH = 256;
+
+    private final IR ir;
+
+    private final CFG<Stmt> cfg;
+
+    private final CompiledTransfers transfers;
+
+    private final int threshold;
+
+    /**
+     * Memoized values of the variables before the statements.
+     */
+    private final Map<Stmt, Map<Var, Value>> values = Maps.newMap();
+
+    /**
+     * The variables being queried before each statement, for detecting
+     * cyclic dependencies.
+     */
+    private final Map<Stmt, Set<Var>> pending = Maps.newMap();
+
+    private int depth;
+
+    /**
+     * Number of queries answered by walking the CFG.
+     */
+    private int queries;
+
+    /**
+     * Constants of the whole method, or {@code null} if they are
+     * not computed yet.
+     */
+    private DataflowResult<Stmt, CPFact> result;
+
+    /**
+     * @param ir        the IR to be queried, whose CFG must have been built
+     * @param threshold number of queries answered by walking the CFG,
+     *                  after which the whole method is analyzed
+     */
+    public ConstantQuery(IR ir, int threshold) {
+        this.ir = ir;
+        this.cfg = ir.getResult(CFGBuilder.ID);
+        this.transfers = CompiledTransfers.of(ir);
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the constant queries of given IR with the default threshold,
+     * which are created at the first call and then cached in the IR.
+     */
+    public static ConstantQuery of(IR ir) {
+        return ir.getResult(ID, () -> new ConstantQuery(ir, DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * @return the value of var before stmt, i.e., in the IN fact of stmt.
+     */
+    public Value getValue(Var var, Stmt stmt) {
+        if (result == null && !ConstantPropagation.hasPrunedFacts(ir)) {
+            result = ir.getResult(ConstantPropagation.ID);
+        }
+        if (result == null) {
+            Value value = getMemo(var, stmt);
+            if (value != null) {
+                return value;
+            }
+            if (++queries <= threshold) {
+                try {
+                    return valueBefore(var, stmt);
+                } catch (Unresolvable e) {
+                    // fall through to analyze the whole method
+                } finally {
+                    pending.clear();
+                    depth = 0;
+                }
+            }
+            result = new ConstantPropagation(new AnalysisConfig(
+                    ConstantPropagation.ID, "dense", true)).solve(ir);
+        }
+        values.clear();
+        long value = PackedValue.UNDEF;
+        for (Stmt pred : cfg.getPredsOf(stmt)) {
+            value = PackedValue.meet(value,
+                    PackedValue.encode(result.getOutFact(pred).get(var)));
+        }
+        return PackedValue.decode(value);
+    }
+
+    /**
+     * @return true if var holds a constant before stmt, otherwise false.
+     */
+    public boolean isConstant(Var var, Stmt stmt) {
+        return getValue(var, stmt).isConstant();
+    }
+
+    /**
+     * Computes the value of var before stmt by walking backward
+     * to the definitions of var reaching stmt.
+     *
+     * @throws Unresolvable if the value depends on itself, or
+     *                      the recursion is too deep.
+     */
+    private Value valueBefore(Var var, Stmt stmt) {
+        Map<Var, Value> stmtValues = values.computeIfAbsent(stmt, s -> Maps.newMap());
+        Value memo = stmtValues.get(var);
+        if (memo != null) {
+            return memo;
+        }
+        Set<Var> stmtPending = pending.computeIfAbsent(stmt, s -> Sets.newSet());
+        if (!stmtPending.add(var) || ++depth > MAX_DEPTH) {
+            throw Unresolvable.INSTANCE;
+        }
+        long value = PackedValue.UNDEF;
+        Set<Stmt> visited = Sets.newSet();
+        Queue<Stmt> workList = new ArrayDeque<>(cfg.getPredsOf(stmt));
+        visited.addAll(workList);
+        while (!workList.isEmpty() && !PackedValue.isNAC(value)) {
+            Stmt s = workList.poll();
+            if (cfg.isEntry(s)) {
+                value = PackedValue.meet(value, boundaryValue(var));
+                continue;
+            }
+            CompiledTransfers.Transfer transfer = transfers.getTransfer(s);
+            if (transfer.def() == var) {
+                value = PackedValue.meet(value,
+                        transfer.rhs().evaluatePacked(new QueryFact(s)));
+                continue;
+            }
+            Value known = getMemo(var, s);
+            if (known != null) {
+                // s does not define var, so its OUT value equals
+                // the memoized IN value
+                value = PackedValue.meet(value, PackedValue.encode(known));
+                continue;
+            }
+            for (Stmt pred : cfg.getPredsOf(s)) {
+                if (visited.add(pred)) {
+                    workList.add(pred);
+                }
+            }
+        }
+        stmtPending.remove(var);
+        --depth;
+        Value result = PackedValue.decode(value);
+        stmtValues.put(var, result);
+        // the value flows unchanged through the chain of statements which
+        // are the single predecessors of stmt and do not define var
+        for (Stmt s = stmt; cfg.getPredsOf(s).size() == 1; ) {
+            s = cfg.getPredsOf(s).iterator().next();
+            if (s == stmt || cfg.isEntry(s)
+                    || transfers.getTransfer(s).def() == var
+                    || getMemo(var, s) != null) {
+                break;
+            }
+            values.computeIfAbsent(s, k -> Maps.newMap()).put(var, result);
+        }
+        return result;
+    }
+
+    private Value getMemo(Var var, Stmt stmt) {
+        Map<Var, Value> stmtValues = values.get(stmt);
+        return stmtValues == null ? null : stmtValues.get(var);
+    }
+
+    /**
+     * @return the encoded value of var at method entry.
+     */
+    private long boundaryValue(Var var) {
+        return ir.getParams().contains(var) && ConstantPropagation.canHoldInt(var) ?
+                PackedValue.NAC : PackedValue.UNDEF;
+    }
+
+    /**
+     * The IN fact of a statement whose values are queried on demand.
+     */
+    private class QueryFact extends CPFact {
+
+        private final Stmt stmt;
+
+        private QueryFact(Stmt stmt) {
+            this.stmt = stmt;
+        }
+
+        @Override
+        public Value get(Var key) {
+            return valueBefore(key, stmt);
+        }
+    }
+
+    /**
+     * Thrown when a value cannot be computed by walking the CFG.
+     */
+    private static final class Unresolvable extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Unresolvable INSTANCE = new Unresolvable();
+
+        private Unresolvable() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.PersistentMap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link CPFact} which stores the lattice values in a primitive array
+ * indexed by {@link Var#getIndex()}. Each element of the array holds
+ * a value encoded by {@link PackedValue}, thus accessing, updating and
+ * meeting the facts do not allocate any objects.
+ * <p>
+ * This fact does not keep the persistent map of {@link CPFact}, and
+ * overrides all the methods of the superclasses that access the map.
+ * It can be mixed with other {@link CPFact}s, e.g., in
+ * {@link #copyFrom(MapFact)}, but it is never equal to them.
+ * Two dense facts are comparable only if they are created for the same IR.
+ */
+public class DenseCPFact extends CPFact {
+
+    private final IntFunction<Var> varGetter;
+
+    /**
+     * Encoded values of the variables, indexed by variable indexes.
+     */
+    private long[] values;
+
+    /**
+     * Number of variables whose values are not UNDEF.
+     */
+    private int size;
+
+    /**
+     * Constructs a dense fact in which all variables are UNDEF.
+     *
+     * @param capacity    number of variables of the IR
+     * @param varGetter   function that maps variable indexes to variables
+     */
+    public DenseCPFact(int capacity, IntFunction<Var> varGetter) {
+        this(new long[capacity], 0, varGetter);
+    }
+
+    private DenseCPFact(long[] values, int size, IntFunction<Var> varGetter) {
+        super(null);
+        this.values = values;
+        this.size = size;
+        this.varGetter = varGetter;
+    }
+
+    /**
+     * @return encoded value of the variable at given index.
+     */
+    long getPacked(int index) {
+        return index < values.length ? values[index] : PackedValue.UNDEF;
+    }
+
+    /**
+     * Sets encoded value of the variable at given index.
+     *
+     * @return true if this fact changed as a result of the call.
+     */
+    boolean setPacked(int index, long value) {
+        if (index >= values.length) {
+            if (PackedValue.isUndef(value)) {
+                return false;
+            }
+            values = Arrays.copyOf(values, Math.max(index + 1, values.length * 2));
+        }
+        long oldValue = values[index];
+        if (oldValue == value) {
+            return false;
+        }
+        if (PackedValue.isUndef(oldValue)) {
+            ++size;
+        } else if (PackedValue.isUndef(value)) {
+            --size;
+        }
+        values[index] = value;
+        return true;
+    }
+
+    /**
+     * @return number of variable slots in this fact.
+     */
+    int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Meets this fact into given fact.
+     */
+    void meetInto(DenseCPFact target) {
+        long[] src = values;
+        for (int i = 0; i < src.length; ++i) {
+            long v = src[i];
+            if (!PackedValue.isUndef(v)) {
+                target.setPacked(i, PackedValue.meet(v, target.getPacked(i)));
+            }
+        }
+    }
+
+    @Override
+    public Value get(Var key) {
+        return PackedValue.decode(getPacked(key.getIndex()));
+    }
+
+    @Override
+    public boolean update(Var key, Value value) {
+        return setPacked(key.getIndex(), PackedValue.encode(value));
+    }
+
+    @Override
+    public Value remove(Var key) {
+        int index = key.getIndex();
+        long oldValue = getPacked(index);
+        setPacked(index, PackedValue.UNDEF);
+        return PackedValue.isUndef(oldValue) ? null : PackedValue.decode(oldValue);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean copyFrom(MapFact<Var, Value> fact) {
+        if (fact instanceof DenseCPFact that) {
+            boolean changed = false;
+            for (int i = 0; i < that.values.length; ++i) {
+                long v = that.values[i];
+                if (!PackedValue.isUndef(v)) {
+                    changed |= setPacked(i, v);
+                }
+            }
+            return changed;
+        }
+        boolean[] changed = { false };
+        fact.forEach((var, value) -> changed[0] |= update(var, value));
+        return changed[0];
+    }
+
+    @Override
+    public DenseCPFact copy() {
+        return new DenseCPFact(values.clone(), size, varGetter);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, PackedValue.UNDEF);
+        size = 0;
+    }
+
+    /**
+     * @return a snapshot of the content of this fact.
+     */
+    @Override
+    protected PersistentMap<Var, Value> persistentMap() {
+        PersistentMap<Var, Value> map = new PersistentMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public Set<Var> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Var var &&
+                        !PackedValue.isUndef(getPacked(var.getIndex()));
+            }
+
+            @Override
+            public Iterator<Var> iterator() {
+                return new Iterator<>() {
+
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < values.length &&
+                                PackedValue.isUndef(values[from])) {
+                            ++from;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Var next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Var var = varGetter.apply(next);
+                        next = advance(next + 1);
+                        return var;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Stream<Map.Entry<Var, Value>> entries() {
+        return IntStream.range(0, values.length)
+                .filter(i -> !PackedValue.isUndef(values[i]))
+                .mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>(
+                        varGetter.apply(i), PackedValue.decode(values[i])));
+    }
+
+    @Override
+    public void forEach(BiConsumer<Var, Value> action) {
+        for (int i = 0; i < values.length; ++i) {
+            long v = values[i];
+            if (!PackedValue.isUndef(v)) {
+                action.accept(varGetter.apply(i), PackedValue.decode(v));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DenseCPFact that) || size != that.size) {
+            return false;
+        }
+        int common = Math.min(values.length, that.values.length);
+        if (!Arrays.equals(values, 0, common, that.values, 0, common)) {
+            return false;
+        }
+        // the slots beyond the common part must be all UNDEF
+        long[] longer = values.length > common ? values : that.values;
+        for (int i = common; i < longer.length; ++i) {
+            if (!PackedValue.isUndef(longer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // consistent with the hash code of the equivalent Map<Var, Value>
+        int h = 0;
+        for (int i = 0; i < values.length; ++i) {
+            long v = values[i];
+            if (!PackedValue.isUndef(v)) {
+                int valueHash = PackedValue.isConstant(v) ?
+                        PackedValue.getConstant(v) : 0;
+                h += varGetter.apply(i).hashCode() ^ valueHash;
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        // same representation as MapFact
+        return "{" + entries()
+                .sorted(Comparator.comparing(e -> e.getKey().toString()))
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(", ")) + "}";
+    }
+}
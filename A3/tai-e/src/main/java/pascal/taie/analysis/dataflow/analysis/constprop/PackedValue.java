@@ -0,0 +1,101 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+/**
+ * Encodes lattice values of constant propagation into primitive longs,
+ * so that the values can be stored and computed without allocation.
+ * <p>
+ * The higher 32 bits of an encoded value hold the kind of the value
+ * (UNDEF, constant, or NAC), and the lower 32 bits hold the integer
+ * if the value is a constant. UNDEF is encoded as 0, thus a freshly
+ * allocated long array represents all UNDEF values.
+ */
+final class PackedValue {
+
+    static final long UNDEF = 0L;
+
+    private static final long CONSTANT_KIND = 1L << 32;
+
+    static final long NAC = 2L << 32;
+
+    private PackedValue() {
+    }
+
+    static long makeConstant(int value) {
+        return CONSTANT_KIND | (value & 0xffffffffL);
+    }
+
+    static boolean isUndef(long value) {
+        return value == UNDEF;
+    }
+
+    static boolean isConstant(long value) {
+        return (value & ~0xffffffffL) == CONSTANT_KIND;
+    }
+
+    static boolean isNAC(long value) {
+        return value == NAC;
+    }
+
+    /**
+     * The client code should call {@link #isConstant(long)} to check
+     * if given value is constant before calling this method.
+     */
+    static int getConstant(long value) {
+        return (int) value;
+    }
+
+    /**
+     * Meets two encoded values.
+     */
+    static long meet(long v1, long v2) {
+        if (v1 == UNDEF) {
+            return v2;
+        } else if (v2 == UNDEF || v1 == v2) {
+            return v1;
+        } else {
+            return NAC;
+        }
+    }
+
+    static long encode(Value value) {
+        if (value.isConstant()) {
+            return makeConstant(value.getConstant());
+        } else if (value.isNAC()) {
+            return NAC;
+        } else {
+            return UNDEF;
+        }
+    }
+
+    static Value decode(long value) {
+        if (isConstant(value)) {
+            return Value.makeConstant(getConstant(value));
+        } else if (value == NAC) {
+            return Value.getNAC();
+        } else {
+            return Value.getUndef();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.defuse.DefUseChains;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Sets;
+
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Result of {@link SparseConditionalConstantPropagation}, which holds
+ * the values of the definitions of the reachable statements, and the
+ * control-flow edges that may be executed.
+ * <p>
+ * The value of a variable at a use is the meet of the values of the
+ * reachable definitions of the variable reaching the use, which are
+ * given by {@link DefUseChains}.
+ */
+public class SCCPResult {
+
+    private final DefUseChains chains;
+
+    private final Stmt entry;
+
+    /**
+     * Encoded values of the variables defined by the statements,
+     * indexed by statement indexes.
+     */
+    private final long[] values;
+
+    private final Set<Edge<Stmt>> executableEdges = Sets.newSet();
+
+    private final BitSet reachableStmts = new BitSet();
+
+    SCCPResult(DefUseChains chains, Stmt entry) {
+        this.chains = chains;
+        this.entry = entry;
+        this.values = new long[entry.getIndex()];
+    }
+
+    /**
+     * @return true if given edge may be executed, otherwise false.
+     */
+    public boolean isExecutable(Edge<Stmt> edge) {
+        return executableEdges.contains(edge);
+    }
+
+    /**
+     * @return true if given statement may be executed, otherwise false.
+     */
+    public boolean isReachable(Stmt stmt) {
+        return reachableStmts.get(stmt.getIndex());
+    }
+
+    /**
+     * @return the value of var used by stmt. If stmt does not use var,
+     * or it is unreachable, then returns UNDEF.
+     */
+    public Value getValue(Stmt stmt, Var var) {
+        return PackedValue.decode(getPacked(stmt, var));
+    }
+
+    /**
+     * @return the encoded value of var used by stmt.
+     */
+    long getPacked(Stmt stmt, Var var) {
+        long value = PackedValue.UNDEF;
+        for (Stmt def : chains.getDefs(stmt, var)) {
+            if (isReachable(def)) {
+                value = PackedValue.meet(value, def == entry ?
+                        getEntryValue(var) : values[def.getIndex()]);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the encoded value of given parameter (or {@code this})
+     * at method entry, which is unknown in intraprocedural analysis.
+     */
+    private static long getEntryValue(Var var) {
+        return ConstantPropagation.canHoldInt(var) ?
+                PackedValue.NAC : PackedValue.UNDEF;
+    }
+
+    /**
+     * Meets given value into the value defined by def.
+     *
+     * @return true if the value defined by def changed.
+     */
+    boolean meetValue(Stmt def, long value) {
+        int index = def.getIndex();
+        long oldValue = values[index];
+        long newValue = PackedValue.meet(oldValue, value);
+        values[index] = newValue;
+        return newValue != oldValue;
+    }
+
+    /**
+     * Marks given edge and its target as executable.
+     *
+     * @return true if the edge was not executable before.
+     */
+    boolean markExecutable(Edge<Stmt> edge) {
+        if (executableEdges.add(edge)) {
+            markReachable(edge.getTarget());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks given statement as reachable.
+     *
+     * @return true if the statement was not reachable before.
+     */
+    boolean markReachable(Stmt stmt) {
+        if (reachableStmts.get(stmt.getIndex())) {
+            return false;
+        }
+        reachableStmts.set(stmt.getIndex());
+        return true;
+    }
+}
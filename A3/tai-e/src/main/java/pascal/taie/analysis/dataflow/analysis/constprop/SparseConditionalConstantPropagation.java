@@ -0,0 +1,237 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.defuse.DefUseChains;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Sparse conditional constant propagation, which computes the constants
+ * and the executable control-flow edges of a method in a single pass.
+ * <p>
+ * Different from {@link ConstantPropagation} followed by a separate
+ * reachability walk, this analysis never evaluates statements of
+ * unreachable code, and the definitions in unreachable code do not
+ * pollute the values at their uses. The successors of an {@link If} or a
+ * {@link SwitchStmt} become executable according to the value of the
+ * condition: only the matching branch for a constant, and all branches
+ * for NAC. The branches of a condition which is still UNDEF are delayed
+ * until no other work remains, and then all of them become executable.
+ * <p>
+ * As Tai-e IR is not in SSA form, the values are propagated along the
+ * {@link DefUseChains} of the IR instead of SSA def-use edges. The analysis
+ * keeps one value per definition, and the value of a variable at a use is
+ * the meet of the values of its reachable definitions reaching the use.
+ * When the value of a definition changes, only the reachable statements
+ * using the definition are evaluated again, thus a visit of a statement
+ * costs time proportional to its uses instead of the variables of the method.
+ */
+public final class SparseConditionalConstantPropagation {
+
+    private final CFG<Stmt> cfg;
+
+    private final DefUseChains chains;
+
+    private final CompiledTransfers transfers;
+
+    private final SCCPResult result;
+
+    /**
+     * The statements to be evaluated, i.e., the newly reachable ones,
+     * and the reachable ones whose used values have changed.
+     */
+    private final Queue<Stmt> workList = new ArrayDeque<>();
+
+    private final BitSet inWorkList = new BitSet();
+
+    /**
+     * Branch statements whose conditions are UNDEF when they are visited.
+     */
+    private final Set<Stmt> undecidedBranches = new LinkedHashSet<>();
+
+    /**
+     * Holds the values of the variables used by the statement being
+     * evaluated, and UNDEF for all other variables.
+     */
+    private final DenseCPFact operands;
+
+    private SparseConditionalConstantPropagation(CFG<Stmt> cfg) {
+        IR ir = cfg.getIR();
+        this.cfg = cfg;
+        this.chains = DefUseChains.of(ir);
+        this.transfers = CompiledTransfers.ofDense(ir);
+        this.result = new SCCPResult(chains, cfg.getEntry());
+        this.operands = new DenseCPFact(ir.getVars().size(), ir::getVar);
+    }
+
+    /**
+     * Analyzes given CFG.
+     *
+     * @return the constants and executable edges of the CFG.
+     */
+    public static SCCPResult analyze(CFG<Stmt> cfg) {
+        SparseConditionalConstantPropagation sccp =
+                new SparseConditionalConstantPropagation(cfg);
+        sccp.solve();
+        return sccp.result;
+    }
+
+    private void solve() {
+        Stmt entry = cfg.getEntry();
+        result.markReachable(entry);
+        for (Edge<Stmt> edge : cfg.getOutEdgesOf(entry)) {
+            markExecutable(edge);
+        }
+        while (!workList.isEmpty()) {
+            while (!workList.isEmpty()) {
+                Stmt stmt = workList.poll();
+                inWorkList.clear(stmt.getIndex());
+                visit(stmt);
+            }
+            resolveUndecidedBranches();
+        }
+    }
+
+    private void visit(Stmt stmt) {
+        loadOperands(stmt);
+        CompiledTransfers.Transfer transfer = transfers.getTransfer(stmt);
+        if (!transfer.isIdentity() &&
+                result.meetValue(stmt, transfer.rhs().evaluatePacked(operands))) {
+            for (Stmt use : chains.getUses(stmt)) {
+                if (result.isReachable(use)) {
+                    addToWorkList(use);
+                }
+            }
+        }
+        if (isBranch(stmt)) {
+            long cond = transfers.evaluateConditionPacked(stmt, operands);
+            if (PackedValue.isUndef(cond)) {
+                undecidedBranches.add(stmt);
+            } else {
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                    if (isFeasible(stmt, edge, cond)) {
+                        markExecutable(edge);
+                    }
+                }
+            }
+        } else {
+            for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                markExecutable(edge);
+            }
+        }
+        clearOperands(stmt);
+    }
+
+    /**
+     * Sets the values of the int variables used by stmt in {@link #operands}.
+     */
+    private void loadOperands(Stmt stmt) {
+        for (RValue use : stmt.getUses()) {
+            if (use instanceof Var var && ConstantPropagation.canHoldInt(var)) {
+                operands.setPacked(var.getIndex(), result.getPacked(stmt, var));
+            }
+        }
+    }
+
+    /**
+     * Resets the values of the variables used by stmt in
+     * {@link #operands} to UNDEF.
+     */
+    private void clearOperands(Stmt stmt) {
+        for (RValue use : stmt.getUses()) {
+            if (use instanceof Var var) {
+                operands.setPacked(var.getIndex(), PackedValue.UNDEF);
+            }
+        }
+    }
+
+    /**
+     * @return true if given out edge of stmt may be executed when the
+     * condition of stmt is cond, which is either a constant or NAC.
+     */
+    private static boolean isFeasible(Stmt stmt, Edge<Stmt> edge, long cond) {
+        if (PackedValue.isNAC(cond)) {
+            return true;
+        }
+        int value = PackedValue.getConstant(cond);
+        return switch (edge.getKind()) {
+            case IF_TRUE -> value != 0;
+            case IF_FALSE -> value == 0;
+            case SWITCH_CASE -> edge.getCaseValue() == value;
+            case SWITCH_DEFAULT -> ((SwitchStmt) stmt).getCaseValues()
+                    .stream()
+                    .noneMatch(caseValue -> caseValue == value);
+            default -> true;
+        };
+    }
+
+    private static boolean isBranch(Stmt stmt) {
+        return stmt instanceof If || stmt instanceof SwitchStmt;
+    }
+
+    /**
+     * Makes all branches of the conditions which are still UNDEF
+     * executable, which is consistent with the dead code detection
+     * based on {@link ConstantPropagation}.
+     */
+    private void resolveUndecidedBranches() {
+        for (Stmt stmt : undecidedBranches) {
+            // the condition may have been decided after it was recorded
+            loadOperands(stmt);
+            long cond = transfers.evaluateConditionPacked(stmt, operands);
+            clearOperands(stmt);
+            if (PackedValue.isUndef(cond)) {
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                    markExecutable(edge);
+                }
+            }
+        }
+        undecidedBranches.clear();
+    }
+
+    private void markExecutable(Edge<Stmt> edge) {
+        if (result.markExecutable(edge)) {
+            addToWorkList(edge.getTarget());
+        }
+    }
+
+    private void addToWorkList(Stmt stmt) {
+        if (!inWorkList.get(stmt.getIndex())) {
+            inWorkList.set(stmt.getIndex());
+            workList.add(stmt);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Streams;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Represents set-like data-flow facts whose elements are densely indexed,
+ * e.g., {@link pascal.taie.ir.exp.Var}s of a method.
+ * <p>
+ * Instead of a hash-based set, this fact keeps one bit per element
+ * (addressed by {@link Indexable#getIndex()}), thus union, intersection,
+ * copy and equality are performed word by word. All facts of the same
+ * universe (e.g., all facts of an analysis on one method) should share
+ * the same element getter. This fact can be mixed with the hash-based
+ * {@link SetFact}s of the same elements, e.g., in unions and equality
+ * checks, but then the operations are performed element by element.
+ *
+ * @param <E> type of elements
+ */
+public class BitSetFact<E extends Indexable> extends SetFact<E> {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    /**
+     * Maps index back to the corresponding element.
+     */
+    private final IntFunction<E> elementGetter;
+
+    private long[] words;
+
+    /**
+     * @param capacity      number of elements in the universe
+     * @param elementGetter the function to obtain the element of given index
+     */
+    public BitSetFact(int capacity, IntFunction<E> elementGetter) {
+        super((Void) null);
+        this.elementGetter = elementGetter;
+        this.words = new long[wordIndex(capacity - 1) + 1];
+    }
+
+    private BitSetFact(BitSetFact<E> fact) {
+        super((Void) null);
+        this.elementGetter = fact.elementGetter;
+        this.words = fact.words.clone();
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
+    @Override
+    public boolean contains(E e) {
+        return get(e.getIndex());
+    }
+
+    private boolean get(int index) {
+        int wordIndex = wordIndex(index);
+        return wordIndex < words.length &&
+                (words[wordIndex] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean add(E e) {
+        int index = e.getIndex();
+        int wordIndex = wordIndex(index);
+        ensureCapacity(wordIndex + 1);
+        long oldWord = words[wordIndex];
+        words[wordIndex] = oldWord | (1L << index);
+        return words[wordIndex] != oldWord;
+    }
+
+    @Override
+    public boolean remove(E e) {
+        int index = e.getIndex();
+        int wordIndex = wordIndex(index);
+        if (wordIndex >= words.length) {
+            return false;
+        }
+        long oldWord = words[wordIndex];
+        words[wordIndex] = oldWord & ~(1L << index);
+        return words[wordIndex] != oldWord;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<E> filter) {
+        boolean changed = false;
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            if (filter.test(elementGetter.apply(i))) {
+                words[wordIndex(i)] &= ~(1L << i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean union(SetFact<E> other) {
+        if (!(other instanceof BitSetFact<E> that)) {
+            boolean changed = false;
+            for (E e : (Iterable<E>) other.stream()::iterator) {
+                changed |= add(e);
+            }
+            return changed;
+        }
+        ensureCapacity(that.words.length);
+        boolean changed = false;
+        for (int i = 0; i < that.words.length; ++i) {
+            long oldWord = words[i];
+            long newWord = oldWord | that.words[i];
+            if (newWord != oldWord) {
+                words[i] = newWord;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean intersect(SetFact<E> other) {
+        if (!(other instanceof BitSetFact<E> that)) {
+            return removeIf(e -> !other.contains(e));
+        }
+        boolean changed = false;
+        for (int i = 0; i < words.length; ++i) {
+            long oldWord = words[i];
+            long newWord = i < that.words.length ? oldWord & that.words[i] : 0L;
+            if (newWord != oldWord) {
+                words[i] = newWord;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void set(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            if (words.length == that.words.length) {
+                System.arraycopy(that.words, 0, words, 0, words.length);
+            } else {
+                words = that.words.clone();
+            }
+        } else {
+            super.set(other);
+        }
+    }
+
+    /**
+     * Sets this fact to {@code gen ∪ (fact - kill)}, which is the typical
+     * transfer function of gen/kill problems, without creating temporary
+     * facts.
+     *
+     * @return true if this fact changed as a result of the call, otherwise false.
+     */
+    public boolean setGenKill(BitSetFact<E> fact, BitSetFact<E> gen, BitSetFact<E> kill) {
+        int length = Math.max(fact.words.length, gen.words.length);
+        ensureCapacity(length);
+        boolean changed = false;
+        for (int i = 0; i < words.length; ++i) {
+            long newWord = wordAt(gen, i) | (wordAt(fact, i) & ~wordAt(kill, i));
+            if (newWord != words[i]) {
+                words[i] = newWord;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static long wordAt(BitSetFact<?> fact, int wordIndex) {
+        return wordIndex < fact.words.length ? fact.words[wordIndex] : 0L;
+    }
+
+    @Override
+    public BitSetFact<E> copy() {
+        return new BitSetFact<>(this);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Stream<E> stream() {
+        return indexes().mapToObj(elementGetter);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    private IntStream indexes() {
+        return IntStream.iterate(nextSetBit(0), i -> i >= 0, i -> nextSetBit(i + 1));
+    }
+
+    /**
+     * @return the index of the first set bit that occurs on or after
+     * the specified index, or -1 if there is no such bit.
+     */
+    private int nextSetBit(int fromIndex) {
+        int wordIndex = wordIndex(fromIndex);
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << ADDRESS_BITS_PER_WORD) +
+                        Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    private void ensureCapacity(int wordsRequired) {
+        if (words.length < wordsRequired) {
+            words = Arrays.copyOf(words, wordsRequired);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BitSetFact<?> that)) {
+            return o instanceof SetFact<?> fact && equalsElements(fact);
+        }
+        long[] shorter = words, longer = that.words;
+        if (shorter.length > longer.length) {
+            shorter = that.words;
+            longer = words;
+        }
+        for (int i = 0; i < shorter.length; ++i) {
+            if (shorter[i] != longer[i]) {
+                return false;
+            }
+        }
+        for (int i = shorter.length; i < longer.length; ++i) {
+            if (longer[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if given fact, which is in other representation,
+     * contains the same elements as this fact.
+     */
+    private boolean equalsElements(SetFact<?> fact) {
+        return size() == fact.size() && fact.stream().allMatch(e ->
+                e instanceof Indexable indexable &&
+                        get(indexable.getIndex()) &&
+                        elementGetter.apply(indexable.getIndex()).equals(e));
+    }
+
+    /**
+     * @return the sum of the hash codes of the elements, which is
+     * the same as the hash code of {@link SetFact} of the same elements.
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            h += elementGetter.apply(i).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return Streams.toString(stream());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A {@link DataflowResult} for nodes which are densely indexed,
+ * e.g., {@link pascal.taie.ir.stmt.Stmt}s of a CFG. The facts are kept in
+ * plain arrays addressed by {@link Indexable#getIndex()}, which avoids
+ * hashing nodes on every query and update of the facts.
+ *
+ * @param <Node> type of nodes, must be {@link Indexable}
+ * @param <Fact> type of data-flow facts
+ */
+public class IndexedDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private Object[] inFacts;
+
+    private Object[] outFacts;
+
+    /**
+     * @param capacity the maximum node index plus one
+     */
+    public IndexedDataflowResult(int capacity) {
+        super(Map.of(), Map.of());
+        inFacts = new Object[capacity];
+        outFacts = new Object[capacity];
+    }
+
+    private static int indexOf(Object node) {
+        return ((Indexable) node).getIndex();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Fact getInFact(Node node) {
+        int index = indexOf(node);
+        return index < inFacts.length ? (Fact) inFacts[index] : null;
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        int index = indexOf(node);
+        if (index >= inFacts.length) {
+            inFacts = Arrays.copyOf(inFacts, index + 1);
+        }
+        inFacts[index] = fact;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Fact getOutFact(Node node) {
+        int index = indexOf(node);
+        return index < outFacts.length ? (Fact) outFacts[index] : null;
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        int index = indexOf(node);
+        if (index >= outFacts.length) {
+            outFacts = Arrays.copyOf(outFacts, index + 1);
+        }
+        outFacts[index] = fact;
+    }
+}
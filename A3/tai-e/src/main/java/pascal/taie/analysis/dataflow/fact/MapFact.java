@@ -23,6 +23,7 @@
 package pascal.taie.analysis.dataflow.fact;
 
 import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.PersistentMap;
 
 import java.util.Comparator;
 import java.util.Map;
@@ -41,7 +42,8 @@ import java.util.stream.Stream;
 public class MapFact<K, V> {
 
     /**
-     * The map holding the mappings of this MapFact.
+     * The map holding the mappings of this MapFact, or null if this fact
+     * keeps its mappings in another representation.
      */
     protected final Map<K, V> map;
 
@@ -54,6 +56,20 @@ public class MapFact<K, V> {
         this.map = Maps.newHybridMap(map);
     }
 
+    /**
+     * Constructs a new MapFact backed by given persistent map. The map
+     * is adopted as is (instead of being copied), so that the subclasses
+     * can share the content with other facts.
+     * <p>
+     * The subclasses which keep their mappings in their own representations
+     * pass null, and must override all the methods that access {@link #map}.
+     *
+     * @param map the map which backs this fact, or null.
+     */
+    protected MapFact(PersistentMap<K, V> map) {
+        this.map = map;
+    }
+
     /**
      * @return the value to which the specified key is mapped,
      * or null if this map contains no mapping for the key.
@@ -62,6 +78,13 @@ public class MapFact<K, V> {
         return map.get(key);
     }
 
+    /**
+     * @return true if this fact contains no key-value mappings.
+     */
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
     /**
      * Updates the key-value mapping in this fact.
      *
@@ -87,6 +110,12 @@ public class MapFact<K, V> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean copyFrom(MapFact<K, V> fact) {
+        if (fact.map == null) {
+            // the mappings of fact are accessible only via its methods
+            boolean[] changed = { false };
+            fact.forEach((key, value) -> changed[0] |= update(key, value));
+            return changed[0];
+        }
         boolean changed = false;
         for (Map.Entry<K, V> entry : fact.map.entrySet()) {
             changed |= update(entry.getKey(), entry.getValue());
@@ -0,0 +1,76 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.collection.PersistentMap;
+
+/**
+ * Represents map-like data-flow facts backed by {@link PersistentMap}.
+ * <p>
+ * Copying such a fact takes constant time, and the copy shares unchanged
+ * content with the original fact, thus transfer functions can copy
+ * the in fact, modify a few mappings and store the result as out fact
+ * without copying the whole map for each statement.
+ * <p>
+ * This fact does not permit null keys or null values.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class PersistentMapFact<K, V> extends MapFact<K, V> {
+
+    public PersistentMapFact() {
+        this(new PersistentMap<>());
+    }
+
+    protected PersistentMapFact(PersistentMap<K, V> map) {
+        super(map);
+    }
+
+    /**
+     * @return the persistent map backing this fact.
+     */
+    protected PersistentMap<K, V> persistentMap() {
+        return (PersistentMap<K, V>) map;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this fact is empty, it simply shares the content of given fact
+     * in constant time; otherwise, only the parts of given fact which
+     * are not shared with this fact are copied.
+     */
+    @Override
+    public boolean copyFrom(MapFact<K, V> fact) {
+        if (fact instanceof PersistentMapFact<K, V> that) {
+            return persistentMap().putAll(that.persistentMap());
+        }
+        return super.copyFrom(fact);
+    }
+
+    @Override
+    public PersistentMapFact<K, V> copy() {
+        return new PersistentMapFact<>(persistentMap().copy());
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.fact;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent cache of the data-flow results of methods, which keeps one
+ * file per result in a local directory.
+ * <p>
+ * A result is keyed by a hash of the analysis, its options and the IR
+ * and CFG of the method (see {@link #key}), thus it can be reused by the
+ * later runs as long as the method body is unchanged. The facts of the
+ * nodes are written by a {@link FactCodec} in index order, and a fact
+ * whose encoding equals the one of the previous fact is written as
+ * a single tag byte; the whole file is then deflated.
+ * <p>
+ * The total size of the files is bounded: when it exceeds the limit,
+ * the least recently used files are evicted. The last modified time
+ * of a file records its last use, so that the order survives across runs.
+ * <p>
+ * The cache never fails an analysis: if a file cannot be read or written,
+ * it is treated as a cache miss.
+ */
+public final class ResultCache {
+
+    private static final Logger logger = LogManager.getLogger(ResultCache.class);
+
+    private static final int MAGIC = 0x7a1ecac4;
+
+    /**
+     * Version of the file format, which is also part of the keys,
+     * thus bumping it invalidates all existing files.
+     */
+    private static final int VERSION = 1;
+
+    private static final String SUFFIX = ".bin";
+
+    // tags of the facts in a file
+    private static final int ABSENT = 0;
+
+    private static final int SAME = 1;
+
+    private static final int NEW = 2;
+
+    /**
+     * Options of the cache itself, which do not affect the results,
+     * and thus are excluded from the keys.
+     */
+    private static final List<String> CACHE_OPTIONS = List.of("cache-dir", "cache-size");
+
+    /**
+     * Caches opened in this run, so that the analyses sharing
+     * a directory also share the size accounting.
+     */
+    private static final Map<Path, ResultCache> caches = Maps.newConcurrentMap();
+
+    private final Path dir;
+
+    private final long maxSize;
+
+    /**
+     * Sizes of the files in this cache, in access order. Guarded by this.
+     */
+    private final LinkedHashMap<String, Long> files =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Total size of the files in this cache. Guarded by this.
+     */
+    private long size;
+
+    private ResultCache(Path dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        try {
+            Files.createDirectories(dir);
+            List<Path> paths;
+            try (Stream<Path> stream = Files.list(dir)) {
+                paths = stream.filter(p -> p.toString().endsWith(SUFFIX))
+                        .toList();
+            }
+            // oldest first, so that the least recently used files are
+            // at the head of the access order
+            List<Map.Entry<Path, FileTime>> times = new ArrayList<>();
+            for (Path path : paths) {
+                times.add(Map.entry(path, Files.getLastModifiedTime(path)));
+            }
+            times.sort(Map.Entry.comparingByValue());
+            for (Map.Entry<Path, FileTime> entry : times) {
+                Path path = entry.getKey();
+                String name = path.getFileName().toString();
+                long fileSize = Files.size(path);
+                files.put(name.substring(0, name.length() - SUFFIX.length()), fileSize);
+                size += fileSize;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open result cache " + dir, e);
+        }
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    /**
+     * Returns the cache on given directory, which is created if absent.
+     *
+     * @param dir     the directory holding the files of the cache
+     * @param maxSize maximum total size of the files in bytes
+     * @throws IllegalArgumentException if the cache on the directory has
+     *                                  been opened with another maximum size
+     */
+    public static ResultCache get(Path dir, long maxSize) {
+        ResultCache cache = caches.computeIfAbsent(dir.toAbsolutePath().normalize(),
+                d -> new ResultCache(d, maxSize));
+        if (cache.maxSize != maxSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Result cache %s has been opened with maximum size %d," +
+                            " but %d is given", cache.dir, cache.maxSize, maxSize));
+        }
+        return cache;
+    }
+
+    /**
+     * Computes the key of the result of an analysis on a method, which is
+     * a SHA-256 hash of the analysis ID and options (except the options
+     * of the cache itself), and of the variables, statements and
+     * control-flow edges of the method.
+     */
+    public static String key(String analysisId, AnalysisOptions options,
+                             IR ir, CFG<?> cfg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(VERSION).append('\n')
+                .append(analysisId).append(describe(options)).append('\n')
+                .append(ir.getMethod()).append('\n');
+        for (Var var : ir.getVars()) {
+            sb.append(var.getIndex()).append(':').append(var.getName())
+                    .append(':').append(var.getType()).append('\n');
+        }
+        sb.append(ir.getThis()).append(ir.getParams())
+                .append(ir.getReturnVars()).append('\n');
+        for (Stmt stmt : ir.getStmts()) {
+            sb.append(stmt.getIndex()).append(' ').append(stmt).append('\n');
+        }
+        // the edges are sorted, as their iteration order is not stable
+        List<String> edges = new ArrayList<>();
+        appendEdges(cfg, edges);
+        edges.sort(Comparator.naturalOrder());
+        edges.forEach(edge -> sb.append(edge).append('\n'));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(
+                    digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * @return the description of given options without the options in
+     * {@link #CACHE_OPTIONS}. As {@link AnalysisOptions} does not expose
+     * its keys, the options are removed from its string representation,
+     * i.e., {@code AnalysisOptions{k1=v1, k2=v2}}.
+     */
+    private static String describe(AnalysisOptions options) {
+        String desc = options.toString();
+        for (String key : CACHE_OPTIONS) {
+            Object value = options.get(key);
+            if (value != null) {
+                String option = key + "=" + value;
+                if (desc.contains(", " + option)) {
+                    desc = desc.replace(", " + option, "");
+                } else if (desc.contains(option + ", ")) {
+                    desc = desc.replace(option + ", ", "");
+                } else {
+                    desc = desc.replace(option, "");
+                }
+            }
+        }
+        return desc;
+    }
+
+    private static <N> void appendEdges(CFG<N> cfg, List<String> edges) {
+        for (N node : cfg) {
+            for (Edge<N> edge : cfg.getOutEdgesOf(node)) {
+                String edgeString = indexOf(edge.getSource()) + " " +
+                        edge.getKind() + " " + indexOf(edge.getTarget());
+                if (edge.isSwitchCase()) {
+                    edgeString += " " + edge.getCaseValue();
+                }
+                edges.add(edgeString);
+            }
+        }
+    }
+
+    private static int indexOf(Object node) {
+        return ((Indexable) node).getIndex();
+    }
+
+    /**
+     * Loads the result of given key.
+     *
+     * @param cfg   the CFG of the result, whose nodes must be {@link Indexable}
+     * @param codec codec of the facts in the result
+     * @return the loaded result, or {@code null} if the result is absent
+     * in this cache or cannot be read.
+     */
+    public <Node, Fact> DataflowResult<Node, Fact> load(
+            String key, CFG<Node> cfg, FactCodec<Node, Fact> codec) {
+        Path path = pathOf(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(path))))) {
+            DataflowResult<Node, Fact> result = read(in, key, cfg, codec);
+            touch(key, path);
+            return result;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Discarding unreadable cached result {}: {}", path, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    private static <Node, Fact> DataflowResult<Node, Fact> read(
+            DataInputStream in, String key, CFG<Node> cfg,
+            FactCodec<Node, Fact> codec) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION ||
+                !in.readUTF().equals(key)) {
+            throw new IOException("Mismatched header");
+        }
+        List<Node> nodes = sortedNodes(cfg);
+        if (FactCodec.readVarInt(in) != nodes.size()) {
+            throw new IOException("Mismatched number of nodes");
+        }
+        DataflowResult<Node, Fact> result = new IndexedDataflowResult<>(
+                indexOf(nodes.get(nodes.size() - 1)) + 1);
+        byte[][] last = { null };
+        for (Node node : nodes) {
+            result.setInFact(node, readFact(in, cfg, codec, last));
+            result.setOutFact(node, readFact(in, cfg, codec, last));
+        }
+        return result;
+    }
+
+    /**
+     * Reads a fact. A fact tagged {@link #SAME} is decoded again from the
+     * last encoding, so that the nodes never share mutable facts.
+     */
+    private static <Node, Fact> Fact readFact(
+            DataInputStream in, CFG<Node> cfg, FactCodec<Node, Fact> codec,
+            byte[][] last) throws IOException {
+        int tag = in.readByte();
+        if (tag == ABSENT) {
+            return null;
+        }
+        if (tag == NEW) {
+            last[0] = new byte[FactCodec.readVarInt(in)];
+            in.readFully(last[0]);
+        } else if (tag != SAME || last[0] == null) {
+            throw new IOException("Malformed fact tag " + tag);
+        }
+        return codec.read(new DataInputStream(
+                new ByteArrayInputStream(last[0])), cfg);
+    }
+
+    /**
+     * Stores the result of given key, and evicts the least recently used
+     * results if the total size exceeds the limit.
+     *
+     * @param cfg   the CFG of the result, whose nodes must be {@link Indexable}
+     * @param codec codec of the facts in the result
+     */
+    public <Node, Fact> void store(String key, CFG<Node> cfg,
+                                   DataflowResult<Node, Fact> result,
+                                   FactCodec<Node, Fact> codec) {
+        Path path = pathOf(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(Files.newOutputStream(temp))))) {
+                write(out, key, cfg, result, codec);
+            }
+            long fileSize = Files.size(temp);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                Long oldSize = files.put(key, fileSize);
+                size += fileSize - (oldSize == null ? 0 : oldSize);
+                evict();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to cache result {}: {}", path, e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static <Node, Fact> void write(
+            DataOutputStream out, String key, CFG<Node> cfg,
+            DataflowResult<Node, Fact> result, FactCodec<Node, Fact> codec)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        List<Node> nodes = sortedNodes(cfg);
+        FactCodec.writeVarInt(out, nodes.size());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[][] last = { null };
+        for (Node node : nodes) {
+            writeFact(out, result.getInFact(node), codec, buffer, last);
+            writeFact(out, result.getOutFact(node), codec, buffer, last);
+        }
+    }
+
+    private static <Fact> void writeFact(
+            DataOutputStream out, Fact fact, FactCodec<?, Fact> codec,
+            ByteArrayOutputStream buffer, byte[][] last) throws IOException {
+        if (fact == null) {
+            out.writeByte(ABSENT);
+            return;
+        }
+        buffer.reset();
+        codec.write(fact, new DataOutputStream(buffer));
+        byte[] bytes = buffer.toByteArray();
+        if (Arrays.equals(bytes, last[0])) {
+            out.writeByte(SAME);
+        } else {
+            out.writeByte(NEW);
+            FactCodec.writeVarInt(out, bytes.length);
+            out.write(bytes);
+            last[0] = bytes;
+        }
+    }
+
+    private static <Node> List<Node> sortedNodes(CFG<Node> cfg) {
+        List<Node> nodes = new ArrayList<>(cfg.getNodes());
+        nodes.sort(Comparator.comparingInt(ResultCache::indexOf));
+        return nodes;
+    }
+
+    private Path pathOf(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    /**
+     * Marks the result of given key as the most recently used.
+     */
+    private void touch(String key, Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        synchronized (this) {
+            if (files.get(key) == null) {
+                // stored by another process after this cache was opened
+                long fileSize = Files.size(path);
+                files.put(key, fileSize);
+                size += fileSize;
+            }
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Long oldSize = files.remove(key);
+            if (oldSize != null) {
+                size -= oldSize;
+            }
+        }
+        try {
+            Files.deleteIfExists(pathOf(key));
+        } catch (IOException e) {
+            logger.warn("Failed to delete cached result {}: {}", pathOf(key), e);
+        }
+    }
+
+    /**
+     * Evicts the least recently used files until the total size is within
+     * the limit. The most recently used file is always kept.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+        while (size > maxSize && files.size() > 1) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            size -= eldest.getValue();
+            try {
+                Files.deleteIfExists(pathOf(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("Failed to evict cached result {}: {}",
+                        pathOf(eldest.getKey()), e);
+            }
+        }
+    }
+}
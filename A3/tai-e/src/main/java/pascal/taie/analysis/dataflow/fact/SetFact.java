@@ -27,17 +27,27 @@ import pascal.taie.util.collection.Sets;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
  * Represents set-like data-flow facts.
+ * <p>
+ * The operations between two facts access the elements of the other fact
+ * through its methods, unless both facts keep their elements in
+ * {@link #set}, so that they also work with the subclasses which keep
+ * their elements in other representations, e.g., {@link BitSetFact}.
  *
  * @param <E> type of elements
  */
 public class SetFact<E> {
 
+    /**
+     * The set holding the elements of this fact, or null if this fact
+     * keeps its elements in another representation.
+     */
     protected final Set<E> set;
 
     public SetFact(Collection<E> c) {
@@ -48,6 +58,15 @@ public class SetFact<E> {
         this(Collections.emptySet());
     }
 
+    /**
+     * Constructs a fact without {@link #set}, for the subclasses which
+     * keep their elements in their own representations. Such subclasses
+     * must override all the methods of this class that access {@link #set}.
+     */
+    SetFact(Void noSet) {
+        set = null;
+    }
+
     /**
      * @return true if this set contains the specified element, otherwise false.
      */
@@ -89,7 +108,14 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean union(SetFact<E> other) {
-        return set.addAll(other.set);
+        if (other.set != null) {
+            return set.addAll(other.set);
+        }
+        boolean changed = false;
+        for (Iterator<E> it = other.stream().iterator(); it.hasNext(); ) {
+            changed |= set.add(it.next());
+        }
+        return changed;
     }
 
     /**
@@ -107,7 +133,10 @@ public class SetFact<E> {
      * @return true if this fact changed as a result of the call, otherwise false.
      */
     public boolean intersect(SetFact<E> other) {
-        return set.retainAll(other.set);
+        if (other.set != null) {
+            return set.retainAll(other.set);
+        }
+        return set.removeIf(e -> !other.contains(e));
     }
 
     /**
@@ -161,7 +190,8 @@ public class SetFact<E> {
         if (!(o instanceof SetFact<?> that)) {
             return false;
         }
-        return set.equals(that.set);
+        // let the fact in other representation compare the elements
+        return that.set != null ? set.equals(that.set) : that.equals(this);
     }
 
     @Override
@@ -0,0 +1,396 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Work-list solver which works on basic blocks instead of single nodes.
+ * <p>
+ * The solver first condenses the CFG into basic blocks, i.e., maximal
+ * chains of nodes which can only be entered from the first node and
+ * left from the last node. Then it only keeps the facts at the block
+ * boundaries and transfers a block by applying the transfer functions
+ * of its nodes in sequence, so that straight-line code is neither
+ * re-queued nor re-met node by node. The facts of the nodes inside a
+ * block are computed by replaying the transfers of the block when they
+ * are queried from the result for the first time.
+ * <p>
+ * This solver assumes that the transfer functions are monotone, thus
+ * the fact of a node inside a block is the same as the fact computed
+ * by the node-level solvers.
+ */
+class BlockSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    BlockSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected DataflowResult<Node, Fact> doSolve(CFG<Node> cfg, SolverMetrics metrics) {
+        BlockResult result = new BlockResult(cfg, buildBlocks(cfg));
+        if (analysis.isForward()) {
+            doSolveForward(cfg, result, metrics);
+        } else {
+            doSolveBackward(cfg, result, metrics);
+        }
+        return result;
+    }
+
+    /**
+     * The result of this solver keeps the facts at the boundaries of the
+     * blocks built from the previous CFG, which are stale once the CFG
+     * changes, thus the result cannot be updated incrementally.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public DataflowResult<Node, Fact> solveIncrementally(
+            CFG<Node> cfg, DataflowResult<Node, Fact> previous,
+            Collection<Node> changedNodes) {
+        throw new UnsupportedOperationException(
+                "Block solver does not support incremental solving");
+    }
+
+    /**
+     * Condenses the nodes of given CFG into basic blocks.
+     */
+    private List<Block> buildBlocks(CFG<Node> cfg) {
+        List<Block> blocks = new ArrayList<>();
+        Map<Node, Block> blockOf = Maps.newMap(cfg.getNumberOfNodes());
+        for (Node node : cfg) {
+            if (isLeader(cfg, node)) {
+                blocks.add(buildBlock(cfg, node, blockOf));
+            }
+        }
+        // the remaining nodes form cycles without leaders,
+        // which are unreachable from the entry
+        for (Node node : cfg) {
+            if (!blockOf.containsKey(node)) {
+                blocks.add(buildBlock(cfg, node, blockOf));
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * @return true if given node must start a new basic block.
+     */
+    private boolean isLeader(CFG<Node> cfg, Node node) {
+        if (cfg.isEntry(node) || cfg.isExit(node)) {
+            return true;
+        }
+        Set<Edge<Node>> inEdges = cfg.getInEdgesOf(node);
+        if (inEdges.size() != 1) {
+            return true;
+        }
+        Edge<Node> inEdge = inEdges.iterator().next();
+        Node pred = inEdge.getSource();
+        return pred == node || cfg.isEntry(pred) ||
+                cfg.getOutDegreeOf(pred) != 1 ||
+                analysis.needTransferEdge(inEdge);
+    }
+
+    private Block buildBlock(CFG<Node> cfg, Node leader, Map<Node, Block> blockOf) {
+        Block block = new Block();
+        Node node = leader;
+        while (true) {
+            block.nodes.add(node);
+            blockOf.put(node, block);
+            if (cfg.isExit(node) || cfg.getOutDegreeOf(node) != 1) {
+                break;
+            }
+            Node succ = cfg.getSuccsOf(node).iterator().next();
+            if (blockOf.containsKey(succ) || isLeader(cfg, succ)) {
+                break;
+            }
+            node = succ;
+        }
+        return block;
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                  SolverMetrics metrics) {
+        BlockResult blockResult = (BlockResult) result;
+        Queue<Block> workList = new ArrayDeque<>();
+        for (Block block : blockResult.blocks) {
+            if (cfg.isEntry(block.first())) {
+                block.outFact = analysis.newBoundaryFact(cfg);
+            } else {
+                block.outFact = analysis.newInitialFact(cfg);
+                block.inWorkList = true;
+                workList.add(block);
+            }
+        }
+        metrics.countFactAllocations(blockResult.blocks.size());
+        while (!workList.isEmpty()) {
+            Block block = workList.poll();
+            block.inWorkList = false;
+            Fact in = analysis.newInitialFact(cfg);
+            metrics.countFactAllocation();
+            for (Edge<Node> edge : cfg.getInEdgesOf(block.first())) {
+                Fact predOut = blockResult.blockOf(edge.getSource()).outFact;
+                if (analysis.needTransferEdge(edge)) {
+                    analysis.meetInto(analysis.transferEdge(edge, predOut), in);
+                    metrics.countEdgeTransfer();
+                } else {
+                    analysis.meetInto(predOut, in);
+                }
+                metrics.countMeet();
+            }
+            block.inFact = in;
+            List<Node> nodes = block.nodes;
+            int last = nodes.size() - 1;
+            for (int i = 0; i < last; ++i) {
+                metrics.countNodeVisit();
+                metrics.countNodeTransfer(nodes.get(i));
+                Fact out = analysis.newInitialFact(cfg);
+                metrics.countFactAllocation();
+                analysis.transferNode(cfg, nodes.get(i), in, out);
+                in = out;
+            }
+            metrics.countNodeVisit();
+            metrics.countNodeTransfer(nodes.get(last));
+            if (analysis.transferNode(cfg, nodes.get(last), in, block.outFact)) {
+                for (Node succ : cfg.getSuccsOf(block.last())) {
+                    Block succBlock = blockResult.blockOf(succ);
+                    if (!succBlock.inWorkList) {
+                        succBlock.inWorkList = true;
+                        workList.add(succBlock);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                   SolverMetrics metrics) {
+        BlockResult blockResult = (BlockResult) result;
+        Queue<Block> workList = new ArrayDeque<>();
+        for (Block block : blockResult.blocks) {
+            if (cfg.isExit(block.last())) {
+                block.inFact = analysis.newBoundaryFact(cfg);
+            } else {
+                block.inFact = analysis.newInitialFact(cfg);
+                block.inWorkList = true;
+                workList.add(block);
+            }
+        }
+        metrics.countFactAllocations(blockResult.blocks.size());
+        while (!workList.isEmpty()) {
+            Block block = workList.poll();
+            block.inWorkList = false;
+            Fact out = analysis.newInitialFact(cfg);
+            metrics.countFactAllocation();
+            for (Edge<Node> edge : cfg.getOutEdgesOf(block.last())) {
+                Fact succIn = blockResult.blockOf(edge.getTarget()).inFact;
+                if (analysis.needTransferEdge(edge)) {
+                    analysis.meetInto(analysis.transferEdge(edge, succIn), out);
+                    metrics.countEdgeTransfer();
+                } else {
+                    analysis.meetInto(succIn, out);
+                }
+                metrics.countMeet();
+            }
+            block.outFact = out;
+            List<Node> nodes = block.nodes;
+            for (int i = nodes.size() - 1; i > 0; --i) {
+                metrics.countNodeVisit();
+                metrics.countNodeTransfer(nodes.get(i));
+                Fact in = analysis.newInitialFact(cfg);
+                metrics.countFactAllocation();
+                analysis.transferNode(cfg, nodes.get(i), in, out);
+                out = in;
+            }
+            metrics.countNodeVisit();
+            metrics.countNodeTransfer(nodes.get(0));
+            if (analysis.transferNode(cfg, nodes.get(0), block.inFact, out)) {
+                for (Node pred : cfg.getPredsOf(block.first())) {
+                    Block predBlock = blockResult.blockOf(pred);
+                    if (!predBlock.inWorkList) {
+                        predBlock.inWorkList = true;
+                        workList.add(predBlock);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A basic block and the facts at its boundaries.
+     */
+    private class Block {
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        /**
+         * Flowing-in fact of the first node.
+         */
+        private Fact inFact;
+
+        /**
+         * Flowing-out fact of the last node.
+         */
+        private Fact outFact;
+
+        private boolean inWorkList;
+
+        /**
+         * Facts of the nodes in this block, which are computed on demand.
+         */
+        private Object[] nodeInFacts;
+
+        private Object[] nodeOutFacts;
+
+        private Node first() {
+            return nodes.get(0);
+        }
+
+        private Node last() {
+            return nodes.get(nodes.size() - 1);
+        }
+    }
+
+    /**
+     * Data-flow result which holds the facts of block boundaries,
+     * and computes the facts of the nodes inside a block on demand.
+     */
+    private class BlockResult extends DataflowResult<Node, Fact> {
+
+        private final CFG<Node> cfg;
+
+        private final List<Block> blocks;
+
+        private final Map<Node, Block> blockOf;
+
+        /**
+         * Map from node to its position in its block.
+         */
+        private final Map<Node, Integer> positions;
+
+        private BlockResult(CFG<Node> cfg, List<Block> blocks) {
+            super(Map.of(), Map.of());
+            this.cfg = cfg;
+            this.blocks = blocks;
+            this.blockOf = Maps.newMap(cfg.getNumberOfNodes());
+            this.positions = Maps.newMap(cfg.getNumberOfNodes());
+            for (Block block : blocks) {
+                for (int i = 0; i < block.nodes.size(); ++i) {
+                    blockOf.put(block.nodes.get(i), block);
+                    positions.put(block.nodes.get(i), i);
+                }
+            }
+        }
+
+        private Block blockOf(Node node) {
+            return blockOf.get(node);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Fact getInFact(Node node) {
+            Block block = blockOf(node);
+            if (block == null) {
+                return null;
+            }
+            materialize(block);
+            return (Fact) block.nodeInFacts[positions.get(node)];
+        }
+
+        @Override
+        public void setInFact(Node node, Fact fact) {
+            Block block = blockOf(node);
+            materialize(block);
+            block.nodeInFacts[positions.get(node)] = fact;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Fact getOutFact(Node node) {
+            Block block = blockOf(node);
+            if (block == null) {
+                return null;
+            }
+            materialize(block);
+            return (Fact) block.nodeOutFacts[positions.get(node)];
+        }
+
+        @Override
+        public void setOutFact(Node node, Fact fact) {
+            Block block = blockOf(node);
+            materialize(block);
+            block.nodeOutFacts[positions.get(node)] = fact;
+        }
+
+        /**
+         * Computes the facts of the nodes in given block
+         * by replaying the transfers of the block.
+         */
+        private void materialize(Block block) {
+            if (block.nodeInFacts != null) {
+                return;
+            }
+            List<Node> nodes = block.nodes;
+            int n = nodes.size();
+            Object[] inFacts = new Object[n];
+            Object[] outFacts = new Object[n];
+            inFacts[0] = block.inFact;
+            outFacts[n - 1] = block.outFact;
+            if (analysis.isForward()) {
+                Fact in = block.inFact;
+                for (int i = 0; i < n - 1; ++i) {
+                    Fact out = analysis.newInitialFact(cfg);
+                    analysis.transferNode(cfg, nodes.get(i), in, out);
+                    outFacts[i] = out;
+                    inFacts[i + 1] = out;
+                    in = out;
+                }
+            } else {
+                Fact out = block.outFact;
+                for (int i = n - 1; i > 0; --i) {
+                    Fact in = analysis.newInitialFact(cfg);
+                    analysis.transferNode(cfg, nodes.get(i), in, out);
+                    inFacts[i] = in;
+                    outFacts[i - 1] = in;
+                    out = in;
+                }
+            }
+            block.nodeInFacts = inFacts;
+            block.nodeOutFacts = outFacts;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.ReverseGraph;
+import pascal.taie.util.graph.SCC;
+import pascal.taie.util.graph.SimpleGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Updates a data-flow result to the fixed point of a CFG after
+ * the transfer functions of some nodes changed, e.g., the statements
+ * were edited or rewritten by a transformation.
+ * <p>
+ * Only the nodes reachable from the changed nodes (along the direction
+ * of the analysis) may have different facts, thus the solver processes
+ * the strongly connected components of these nodes in topological order,
+ * and skips the components whose inputs do not change. For a component
+ * which needs to be solved again:
+ * <ul>
+ *     <li>if it does not contain changed nodes, and all its changed inputs
+ *     only grow (i.e., the new facts are greater than or equal to the old
+ *     ones), then the old facts are still below the new fixed point, and
+ *     the solver continues iterating from the old facts;</li>
+ *     <li>otherwise (e.g., some facts shrink after deletions), the old facts
+ *     may be above the new fixed point, thus the solver resets the facts
+ *     of the component and solves it from scratch.</li>
+ * </ul>
+ * In this way, the result is the same as solving the whole CFG again.
+ */
+class IncrementalSolver<Node, Fact> {
+
+    private final DataflowAnalysis<Node, Fact> analysis;
+
+    private final CFG<Node> cfg;
+
+    private final DataflowResult<Node, Fact> result;
+
+    private final SolverMetrics metrics;
+
+    /**
+     * The CFG in the direction of the analysis.
+     */
+    private final Graph<Node> graph;
+
+    /**
+     * Nodes whose output facts have changed in this update, and whether
+     * the new facts are greater than or equal to the old ones.
+     */
+    private final Map<Node, Boolean> updatedNodes = Maps.newMap();
+
+    IncrementalSolver(DataflowAnalysis<Node, Fact> analysis, CFG<Node> cfg,
+                      DataflowResult<Node, Fact> result, SolverMetrics metrics) {
+        this.analysis = analysis;
+        this.cfg = cfg;
+        this.result = result;
+        this.metrics = metrics;
+        this.graph = analysis.isForward() ? cfg : new ReverseGraph<>(cfg);
+    }
+
+    void solve(Collection<Node> changedNodes) {
+        Set<Node> changed = new HashSet<>(changedNodes);
+        Set<Node> affected = collectAffectedNodes(changed);
+        // condense the affected nodes into components in topological order
+        SimpleGraph<Node> subgraph = new SimpleGraph<>();
+        for (Node node : affected) {
+            subgraph.addNode(node);
+            for (Node succ : graph.getSuccsOf(node)) {
+                if (affected.contains(succ)) {
+                    subgraph.addEdge(node, succ);
+                }
+            }
+        }
+        List<List<Node>> components = new SCC<>(subgraph).getComponents();
+        Map<Node, List<Node>> componentOf = Maps.newMap(affected.size());
+        SimpleGraph<List<Node>> dag = new SimpleGraph<>();
+        for (List<Node> component : components) {
+            dag.addNode(component);
+            component.forEach(node -> componentOf.put(node, component));
+        }
+        for (Node node : affected) {
+            for (Node succ : subgraph.getSuccsOf(node)) {
+                List<Node> from = componentOf.get(node);
+                List<Node> to = componentOf.get(succ);
+                if (from != to) {
+                    dag.addEdge(from, to);
+                }
+            }
+        }
+        for (List<Node> component : new TopoSorter<>(dag).get()) {
+            solveComponent(component, changed);
+        }
+    }
+
+    /**
+     * @return the nodes reachable from the changed nodes.
+     */
+    private Set<Node> collectAffectedNodes(Set<Node> changed) {
+        Set<Node> affected = Sets.newSet();
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node node : changed) {
+            if (cfg.hasNode(node) && affected.add(node)) {
+                queue.add(node);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (Node succ : graph.getSuccsOf(queue.poll())) {
+                if (affected.add(succ)) {
+                    queue.add(succ);
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void solveComponent(List<Node> component, Set<Node> changed) {
+        boolean hasChangedNode = false;
+        boolean inputsChanged = false;
+        boolean inputsGrow = true;
+        for (Node node : component) {
+            if (changed.contains(node) || getOutput(node) == null) {
+                hasChangedNode = true;
+            }
+            for (Node pred : graph.getPredsOf(node)) {
+                Boolean grow = updatedNodes.get(pred);
+                if (grow != null) {
+                    inputsChanged = true;
+                    inputsGrow &= grow;
+                }
+            }
+        }
+        if (!hasChangedNode && !inputsChanged) {
+            return;
+        }
+        Map<Node, Fact> oldOutputs = Maps.newMap(component.size());
+        boolean reset = hasChangedNode || !inputsGrow;
+        for (Node node : component) {
+            Fact output = getOutput(node);
+            oldOutputs.put(node, output);
+            if (reset || output == null) {
+                setOutput(node, isBoundary(node) ?
+                        analysis.newBoundaryFact(cfg) :
+                        analysis.newInitialFact(cfg));
+                metrics.countFactAllocation();
+            }
+        }
+        Set<Node> members = new HashSet<>(component);
+        Queue<Node> workList = new ArrayDeque<>(component);
+        Set<Node> inWorkList = new HashSet<>(component);
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            inWorkList.remove(node);
+            if (isBoundary(node)) {
+                continue;
+            }
+            metrics.countNodeVisit();
+            if (transfer(node)) {
+                for (Node succ : graph.getSuccsOf(node)) {
+                    if (members.contains(succ) && inWorkList.add(succ)) {
+                        workList.add(succ);
+                    }
+                }
+            }
+        }
+        for (Node node : component) {
+            Fact oldOutput = oldOutputs.get(node);
+            Fact newOutput = getOutput(node);
+            if (oldOutput == null || !oldOutput.equals(newOutput)) {
+                updatedNodes.put(node, oldOutput == null || grows(oldOutput, newOutput));
+            }
+        }
+    }
+
+    /**
+     * Recomputes the input and output facts of given node.
+     *
+     * @return true if the output fact changed.
+     */
+    private boolean transfer(Node node) {
+        Fact input = analysis.newInitialFact(cfg);
+        metrics.countFactAllocation();
+        Set<Edge<Node>> edges = analysis.isForward() ?
+                cfg.getInEdgesOf(node) : cfg.getOutEdgesOf(node);
+        for (Edge<Node> edge : edges) {
+            Node other = analysis.isForward() ? edge.getSource() : edge.getTarget();
+            Fact fact = getOutput(other);
+            if (fact == null) {
+                // the neighbor has not been analyzed yet
+                continue;
+            }
+            if (analysis.needTransferEdge(edge)) {
+                fact = analysis.transferEdge(edge, fact);
+                metrics.countEdgeTransfer();
+            }
+            analysis.meetInto(fact, input);
+            metrics.countMeet();
+        }
+        // transfer into a fresh fact, so that the output can also shrink
+        Fact output = analysis.newInitialFact(cfg);
+        metrics.countFactAllocation();
+        metrics.countNodeTransfer(node);
+        if (analysis.isForward()) {
+            result.setInFact(node, input);
+            analysis.transferNode(cfg, node, input, output);
+        } else {
+            result.setOutFact(node, input);
+            analysis.transferNode(cfg, node, output, input);
+        }
+        if (output.equals(getOutput(node))) {
+            return false;
+        }
+        setOutput(node, output);
+        return true;
+    }
+
+    /**
+     * @return true if newFact is greater than or equal to oldFact
+     * in the lattice, i.e., the meet of them equals newFact.
+     */
+    private boolean grows(Fact oldFact, Fact newFact) {
+        Fact meet = analysis.newInitialFact(cfg);
+        metrics.countFactAllocation();
+        analysis.meetInto(oldFact, meet);
+        analysis.meetInto(newFact, meet);
+        metrics.countMeet();
+        metrics.countMeet();
+        return meet.equals(newFact);
+    }
+
+    private boolean isBoundary(Node node) {
+        return analysis.isForward() ? cfg.isEntry(node) : cfg.isExit(node);
+    }
+
+    /**
+     * @return the OUT (IN) fact of given node for forward (backward) analysis.
+     */
+    private Fact getOutput(Node node) {
+        return analysis.isForward() ? result.getOutFact(node) : result.getInFact(node);
+    }
+
+    private void setOutput(Node node, Fact fact) {
+        if (analysis.isForward()) {
+            result.setOutFact(node, fact);
+        } else {
+            result.setInFact(node, fact);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.ReverseGraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Work-list solver which always picks the node with the smallest
+ * reverse-postorder number from the work-list, i.e., the work-list
+ * is a priority queue over reverse-postorder numbers.
+ * <p>
+ * For forward analyses, the nodes are ordered in reverse postorder of
+ * the CFG, and for backward analyses, they are ordered in reverse
+ * postorder of the reversed CFG. In this order, a node is (except for
+ * back edges) processed after all its predecessors, thus loop bodies are
+ * stabilized before the facts flow out of the loops, which saves many
+ * node visits compared with FIFO work-list or round-robin iteration.
+ */
+class PriorityWorkListSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    PriorityWorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                  SolverMetrics metrics) {
+        List<Node> order = reversePostOrder(cfg, cfg.getEntry());
+        Map<Node, Integer> numbers = number(order);
+        WorkList workList = new WorkList(order.size());
+        for (int i = workList.poll(); i >= 0; i = workList.poll()) {
+            Node node = order.get(i);
+            if (cfg.isEntry(node)) {
+                continue;
+            }
+            metrics.countNodeVisit();
+            Fact in = result.getInFact(node);
+            if (in == null) {
+                in = analysis.newInitialFact(cfg);
+                metrics.countFactAllocation();
+                result.setInFact(node, in);
+            }
+            for (Edge<Node> inEdge : cfg.getInEdgesOf(node)) {
+                Fact predOut = result.getOutFact(inEdge.getSource());
+                if (analysis.needTransferEdge(inEdge)) {
+                    predOut = analysis.transferEdge(inEdge, predOut);
+                    metrics.countEdgeTransfer();
+                }
+                analysis.meetInto(predOut, in);
+                metrics.countMeet();
+            }
+            metrics.countNodeTransfer(node);
+            if (analysis.transferNode(cfg, node, in, result.getOutFact(node))) {
+                for (Node succ : cfg.getSuccsOf(node)) {
+                    workList.add(numbers.get(succ));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                   SolverMetrics metrics) {
+        List<Node> order = reversePostOrder(new ReverseGraph<>(cfg), cfg.getExit());
+        Map<Node, Integer> numbers = number(order);
+        WorkList workList = new WorkList(order.size());
+        for (int i = workList.poll(); i >= 0; i = workList.poll()) {
+            Node node = order.get(i);
+            if (cfg.isExit(node)) {
+                continue;
+            }
+            metrics.countNodeVisit();
+            Fact out = result.getOutFact(node);
+            if (out == null) {
+                out = analysis.newInitialFact(cfg);
+                metrics.countFactAllocation();
+                result.setOutFact(node, out);
+            }
+            for (Edge<Node> outEdge : cfg.getOutEdgesOf(node)) {
+                Fact succIn = result.getInFact(outEdge.getTarget());
+                if (analysis.needTransferEdge(outEdge)) {
+                    succIn = analysis.transferEdge(outEdge, succIn);
+                    metrics.countEdgeTransfer();
+                }
+                analysis.meetInto(succIn, out);
+                metrics.countMeet();
+            }
+            metrics.countNodeTransfer(node);
+            if (analysis.transferNode(cfg, node, result.getInFact(node), out)) {
+                for (Node pred : cfg.getPredsOf(node)) {
+                    workList.add(numbers.get(pred));
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes reverse postorder of the nodes in given graph by depth-first
+     * search from the root. The nodes that are unreachable from the root
+     * (e.g., dead code) are placed after all reachable nodes.
+     */
+    static <N> List<N> reversePostOrder(Graph<N> graph, N root) {
+        Set<N> visited = Sets.newSet(graph.getNumberOfNodes());
+        List<N> order = postOrder(graph, root, visited);
+        Collections.reverse(order);
+        if (visited.size() < graph.getNumberOfNodes()) {
+            List<N> rest = new ArrayList<>();
+            for (N node : graph) {
+                if (!visited.contains(node)) {
+                    rest.addAll(postOrder(graph, node, visited));
+                }
+            }
+            Collections.reverse(rest);
+            order.addAll(rest);
+        }
+        return order;
+    }
+
+    /**
+     * Iterative depth-first search, so that huge methods do not
+     * overflow the call stack.
+     */
+    private static <N> List<N> postOrder(Graph<N> graph, N root, Set<N> visited) {
+        List<N> postOrder = new ArrayList<>();
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<Iterator<N>> succs = new ArrayDeque<>();
+        visited.add(root);
+        nodes.push(root);
+        succs.push(graph.getSuccsOf(root).iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<N> it = succs.peek();
+            if (it.hasNext()) {
+                N succ = it.next();
+                if (visited.add(succ)) {
+                    nodes.push(succ);
+                    succs.push(graph.getSuccsOf(succ).iterator());
+                }
+            } else {
+                postOrder.add(nodes.pop());
+                succs.pop();
+            }
+        }
+        return postOrder;
+    }
+
+    private static <N> Map<N, Integer> number(List<N> order) {
+        Map<N, Integer> numbers = Maps.newMap(order.size());
+        for (int i = 0; i < order.size(); ++i) {
+            numbers.put(order.get(i), i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Priority work-list of node numbers. The bit set tracks membership
+     * and, as the numbers are the priorities, also serves as the queue.
+     */
+    private static class WorkList {
+
+        private final BitSet members;
+
+        /**
+         * No member is smaller than this number.
+         */
+        private int lowest;
+
+        /**
+         * Creates a work-list that initially contains numbers [0, size).
+         */
+        private WorkList(int size) {
+            members = new BitSet(size);
+            members.set(0, size);
+            lowest = 0;
+        }
+
+        private void add(int number) {
+            members.set(number);
+            if (number < lowest) {
+                lowest = number;
+            }
+        }
+
+        /**
+         * Removes and returns the smallest number in this work-list.
+         *
+         * @return the smallest number, or -1 if this work-list is empty.
+         */
+        private int poll() {
+            int number = members.nextSetBit(lowest);
+            if (number >= 0) {
+                members.clear(number);
+                lowest = number;
+            }
+            return number;
+        }
+    }
+}
@@ -24,7 +24,13 @@ package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.IndexedDataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.Indexable;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Base class for data-flow analysis solver, which provides common
@@ -37,6 +43,17 @@ public abstract class Solver<Node, Fact> {
 
     protected final DataflowAnalysis<Node, Fact> analysis;
 
+    /**
+     * The metrics of the CFG last solved by each thread.
+     */
+    private final ThreadLocal<SolverMetrics> lastMetrics = new ThreadLocal<>();
+
+    /**
+     * Number of nodes visited by this solver, accumulated over all CFGs
+     * it has solved.
+     */
+    private final LongAdder nodeVisits = new LongAdder();
+
     protected Solver(DataflowAnalysis<Node, Fact> analysis) {
         this.analysis = analysis;
     }
@@ -49,6 +66,45 @@ public abstract class Solver<Node, Fact> {
         return new WorkListSolver<>(analysis);
     }
 
+    /**
+     * Static factory method to create a new solver of given kind
+     * for given analysis.
+     *
+     * @param kind kind of the solver, {@code "worklist"} (default),
+     *             {@code "priority"}, {@code "block"} or {@code "wto"}.
+     *             If it is {@code null}, then the default solver is created.
+     * @throws ConfigException if the kind is unknown
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, String kind) {
+        if (kind == null) {
+            return makeSolver(analysis);
+        }
+        return switch (kind) {
+            case "worklist" -> new WorkListSolver<>(analysis);
+            case "priority" -> new PriorityWorkListSolver<>(analysis);
+            case "block" -> new BlockSolver<>(analysis);
+            case "wto" -> new WTOSolver<>(analysis);
+            default -> throw new ConfigException("Unknown solver: " + kind);
+        };
+    }
+
+    /**
+     * @return the number of nodes visited by this solver so far.
+     */
+    public long getNodeVisits() {
+        return nodeVisits.sum();
+    }
+
+    /**
+     * @return the metrics of the CFG which was last solved by
+     * the current thread, or {@code null} if the thread has not
+     * solved any CFG with this solver.
+     */
+    public SolverMetrics getLastMetrics() {
+        return lastMetrics.get();
+    }
+
     /**
      * Starts this solver on the given CFG.
      *
@@ -56,9 +112,44 @@ public abstract class Solver<Node, Fact> {
      * @return the analysis result
      */
     public DataflowResult<Node, Fact> solve(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = initialize(cfg);
-        doSolve(cfg, result);
-        return result;
+        SolverMetrics metrics = new SolverMetrics(cfg);
+        try {
+            return doSolve(cfg, metrics);
+        } finally {
+            finish(metrics);
+        }
+    }
+
+    /**
+     * Updates a result of this solver on the given CFG to the new fixed
+     * point after the transfer functions of some nodes changed. Nodes which
+     * are added to the CFG after the previous solving, and the nodes whose
+     * in or out edges changed, should also be given as changed nodes.
+     *
+     * @param cfg          control-flow graph where the analysis is performed on
+     * @param previous     the result of previous solving, which is updated
+     *                     in place
+     * @param changedNodes the nodes whose transfer functions changed
+     * @return the updated result, i.e., {@code previous}
+     * @throws UnsupportedOperationException if this solver does not
+     *                                       support incremental solving
+     */
+    public DataflowResult<Node, Fact> solveIncrementally(
+            CFG<Node> cfg, DataflowResult<Node, Fact> previous,
+            Collection<Node> changedNodes) {
+        SolverMetrics metrics = new SolverMetrics(cfg);
+        try {
+            new IncrementalSolver<>(analysis, cfg, previous, metrics).solve(changedNodes);
+            return previous;
+        } finally {
+            finish(metrics);
+        }
+    }
+
+    private void finish(SolverMetrics metrics) {
+        metrics.finish();
+        nodeVisits.add(metrics.getNodeVisits());
+        lastMetrics.set(metrics);
     }
 
     /**
@@ -66,22 +157,45 @@ public abstract class Solver<Node, Fact> {
      *
      * @return the initialized data-flow result
      */
-    private DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = new DataflowResult<>();
+    private DataflowResult<Node, Fact> initialize(CFG<Node> cfg, SolverMetrics metrics) {
+        DataflowResult<Node, Fact> result = newResult(cfg);
         if (analysis.isForward()) {
             initializeForward(cfg, result);
         } else {
             initializeBackward(cfg, result);
         }
+        metrics.countFactAllocations(cfg.getNumberOfNodes());
         return result;
     }
 
+    /**
+     * Creates an empty data-flow result for given CFG. If all nodes of
+     * the CFG are densely indexed (e.g., {@link pascal.taie.ir.stmt.Stmt}s,
+     * whose indexes range over the statements of the IR plus the entry and
+     * exit nodes), then the facts are stored in arrays indexed by the nodes,
+     * otherwise they are stored in maps.
+     */
+    static <Node, Fact> DataflowResult<Node, Fact> newResult(CFG<Node> cfg) {
+        int maxIndex = -1;
+        for (Node node : cfg) {
+            if (!(node instanceof Indexable indexable)) {
+                return new DataflowResult<>();
+            }
+            maxIndex = Math.max(maxIndex, indexable.getIndex());
+        }
+        int capacity = maxIndex + 1;
+        // fall back to map-based result if the indexes are too sparse
+        return capacity <= 2 * cfg.getNumberOfNodes() ?
+                new IndexedDataflowResult<>(capacity) :
+                new DataflowResult<>();
+    }
+
     protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
         Node entry = cfg.getEntry();
         result.setOutFact(entry, analysis.newBoundaryFact(cfg));
         for (Node node : cfg) {
             if (cfg.isEntry(node)) continue;
-            result.setOutFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact(cfg));
         }
     }
 
@@ -90,22 +204,29 @@ public abstract class Solver<Node, Fact> {
         result.setInFact(exit, analysis.newBoundaryFact(cfg));
         for (Node node : cfg) {
             if (cfg.isExit(node)) continue;
-            result.setInFact(node, analysis.newInitialFact());
+            result.setInFact(node, analysis.newInitialFact(cfg));
         }
     }
 
     /**
-     * Solves the data-flow problem for given CFG.
+     * Solves the data-flow problem for given CFG. The solver loop counts
+     * its node visits and its calls to the analysis into given metrics.
+     *
+     * @return the analysis result
      */
-    private void doSolve(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+    protected DataflowResult<Node, Fact> doSolve(CFG<Node> cfg, SolverMetrics metrics) {
+        DataflowResult<Node, Fact> result = initialize(cfg, metrics);
         if (analysis.isForward()) {
-            doSolveForward(cfg, result);
+            doSolveForward(cfg, result, metrics);
         } else {
-            doSolveBackward(cfg, result);
+            doSolveBackward(cfg, result, metrics);
         }
+        return result;
     }
 
-    protected abstract void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
+    protected abstract void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                           SolverMetrics metrics);
 
-    protected abstract void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
+    protected abstract void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                            SolverMetrics metrics);
 }
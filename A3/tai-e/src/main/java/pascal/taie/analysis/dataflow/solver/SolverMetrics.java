@@ -0,0 +1,242 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Counters of a solver on a single CFG, i.e., a single run of
+ * {@link Solver#solve(CFG)} or {@link Solver#solveIncrementally}.
+ * The counters are plain fields updated by the thread running
+ * the solver, so that they are cheap enough to be always enabled.
+ */
+public final class SolverMetrics {
+
+    private final JMethod method;
+
+    private final int numberOfNodes;
+
+    private final long startTime;
+
+    private long wallTime = -1;
+
+    private long nodeVisits;
+
+    private long transferCalls;
+
+    private long meetCalls;
+
+    private long factAllocations;
+
+    /**
+     * Number of transfers of each node, indexed by the indexes of
+     * {@link Indexable} nodes.
+     */
+    private int[] indexedTransfers = new int[0];
+
+    /**
+     * Number of transfers of each node which is not {@link Indexable}.
+     */
+    private Map<Object, Integer> transfers;
+
+    private int iterations;
+
+    SolverMetrics(CFG<?> cfg) {
+        this.method = cfg.getMethod();
+        this.numberOfNodes = cfg.getNumberOfNodes();
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * @return the key of the metrics of given analysis stored in IR.
+     */
+    public static String getResultKey(String analysisId) {
+        return analysisId + ".metrics";
+    }
+
+    /**
+     * @return the method of the CFG.
+     */
+    public JMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the number of nodes of the CFG.
+     */
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /**
+     * @return the wall-clock time of solving the CFG in nanoseconds,
+     * or -1 if the solver has not finished.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return the number of nodes visited (i.e., met and transferred)
+     * by the solver.
+     */
+    public long getNodeVisits() {
+        return nodeVisits;
+    }
+
+    /**
+     * @return the number of calls to the node and edge transfer functions.
+     */
+    public long getTransferCalls() {
+        return transferCalls;
+    }
+
+    /**
+     * @return the number of calls to the meet function.
+     */
+    public long getMeetCalls() {
+        return meetCalls;
+    }
+
+    /**
+     * @return the number of facts created by the boundary and initial
+     * fact factories of the analysis.
+     */
+    public long getFactAllocations() {
+        return factAllocations;
+    }
+
+    /**
+     * @return the number of fixed-point iterations, i.e., the largest
+     * number of times a single node was transferred.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    void countNodeVisit() {
+        ++nodeVisits;
+    }
+
+    void countNodeTransfer(Object node) {
+        ++transferCalls;
+        int count;
+        if (node instanceof Indexable indexable) {
+            int index = indexable.getIndex();
+            if (index >= indexedTransfers.length) {
+                indexedTransfers = Arrays.copyOf(indexedTransfers,
+                        Math.max(index + 1, numberOfNodes));
+            }
+            count = ++indexedTransfers[index];
+        } else {
+            if (transfers == null) {
+                transfers = Maps.newMap();
+            }
+            count = transfers.merge(node, 1, Integer::sum);
+        }
+        iterations = Math.max(iterations, count);
+    }
+
+    void countEdgeTransfer() {
+        ++transferCalls;
+    }
+
+    void countMeet() {
+        ++meetCalls;
+    }
+
+    void countFactAllocation() {
+        ++factAllocations;
+    }
+
+    void countFactAllocations(int count) {
+        factAllocations += count;
+    }
+
+    void finish() {
+        wallTime = System.nanoTime() - startTime;
+        // release the per-node counters
+        indexedTransfers = null;
+        transfers = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: nodes=%d, time=%.3fms, visits=%d, " +
+                        "transfers=%d, meets=%d, allocations=%d, iterations=%d",
+                method, numberOfNodes, wallTime / 1e6, nodeVisits,
+                transferCalls, meetCalls, factAllocations, iterations);
+    }
+
+    /**
+     * Summarizes the metrics of many CFGs, including the totals,
+     * the slowest methods and the histogram of iterations.
+     *
+     * @param top number of the slowest methods to be reported
+     * @return the report text
+     */
+    public static String report(Collection<SolverMetrics> metrics, int top) {
+        StringBuilder builder = new StringBuilder();
+        long time = 0, visits = 0, transfers = 0, meets = 0, allocations = 0;
+        for (SolverMetrics m : metrics) {
+            time += m.wallTime;
+            visits += m.nodeVisits;
+            transfers += m.transferCalls;
+            meets += m.meetCalls;
+            allocations += m.factAllocations;
+        }
+        builder.append(String.format("#methods: %d, time: %.3fms, visits: %d, " +
+                        "transfers: %d, meets: %d, allocations: %d%n",
+                metrics.size(), time / 1e6, visits, transfers, meets, allocations));
+        builder.append(String.format("Top %d slowest methods:%n", top));
+        metrics.stream()
+                .sorted(Comparator.comparingLong(SolverMetrics::getWallTime)
+                        .reversed())
+                .limit(top)
+                .forEach(m -> builder.append("  ").append(m).append(System.lineSeparator()));
+        // buckets of iterations: [0, 1], [2, 3], [4, 7], [8, 15], ...
+        int[] histogram = new int[Integer.SIZE];
+        int maxBucket = 0;
+        for (SolverMetrics m : metrics) {
+            int bucket = Math.max(0, Integer.SIZE - 1 -
+                    Integer.numberOfLeadingZeros(m.iterations));
+            ++histogram[bucket];
+            maxBucket = Math.max(maxBucket, bucket);
+        }
+        builder.append(String.format("Histogram of iterations:%n"));
+        for (int i = 0; i <= maxBucket; ++i) {
+            int low = i == 0 ? 0 : 1 << i;
+            int high = (1 << (i + 1)) - 1;
+            builder.append(String.format("  [%d, %d]: %d%n", low, high, histogram[i]));
+        }
+        return builder.toString();
+    }
+}
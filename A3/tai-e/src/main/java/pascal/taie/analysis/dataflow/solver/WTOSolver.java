@@ -0,0 +1,239 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.graph.Graph;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.ReverseGraph;
+import pascal.taie.util.graph.SimpleGraph;
+import pascal.taie.util.graph.TopoSorter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solver which iterates over the nodes in a weak topological order (WTO),
+ * following the recursive iteration strategy of Bourdoncle [1].
+ * <p>
+ * A WTO is a hierarchical decomposition of the CFG: the strongly connected
+ * components are arranged in topological order, and each non-trivial
+ * component is further decomposed after removing its head, i.e., the node
+ * of the component which comes first in reverse postorder (the loop head
+ * for reducible CFGs). The solver computes the WTO once per CFG, visits the
+ * components in order, and stabilizes a component by iterating its body
+ * until the fact flowing into its head no longer changes. Thus, each loop
+ * is only re-iterated as a whole when it has not converged, and the solver
+ * never goes back to the nodes before a loop.
+ * <p>
+ * The facts flowing into the heads are widened by
+ * {@link DataflowAnalysis#widen(Object, Object)}, which enables analyses
+ * over lattices of large or infinite height (e.g., intervals).
+ * <p>
+ * [1] F. Bourdoncle. Efficient chaotic iteration strategies with widenings.
+ * In Formal Methods in Programming and Their Applications, 1993.
+ */
+class WTOSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    WTOSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                  SolverMetrics metrics) {
+        new Iteration(cfg, result, metrics).stabilize(buildWTO(cfg, cfg.getEntry()));
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                   SolverMetrics metrics) {
+        new Iteration(cfg, result, metrics).stabilize(
+                buildWTO(new ReverseGraph<>(cfg), cfg.getExit()));
+    }
+
+    /**
+     * The incremental solver iterates the affected nodes in its own order
+     * without widening, which may not terminate for the analyses relying
+     * on the widening of this solver, thus it is not supported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public DataflowResult<Node, Fact> solveIncrementally(
+            CFG<Node> cfg, DataflowResult<Node, Fact> previous,
+            Collection<Node> changedNodes) {
+        throw new UnsupportedOperationException(
+                "WTO solver does not support incremental solving");
+    }
+
+    /**
+     * Element of a WTO, i.e., either a single node (body is {@code null})
+     * or a component with its head and the WTO of the rest of its nodes.
+     */
+    private record Element<N>(N head, List<Element<N>> body) {
+    }
+
+    /**
+     * Computes the WTO of given graph.
+     */
+    private static <N> List<Element<N>> buildWTO(Graph<N> graph, N root) {
+        List<N> order = PriorityWorkListSolver.reversePostOrder(graph, root);
+        Map<N, Integer> numbers = Maps.newMap(order.size());
+        for (int i = 0; i < order.size(); ++i) {
+            numbers.put(order.get(i), i);
+        }
+        return buildWTO(graph, order, numbers);
+    }
+
+    /**
+     * Computes the WTO of the subgraph induced by given nodes.
+     *
+     * @param nodes   the nodes of the subgraph
+     * @param numbers the reverse-postorder numbers of the nodes
+     */
+    private static <N> List<Element<N>> buildWTO(
+            Graph<N> graph, Collection<N> nodes, Map<N, Integer> numbers) {
+        SimpleGraph<N> subgraph = new SimpleGraph<>();
+        nodes.forEach(subgraph::addNode);
+        for (N node : nodes) {
+            for (N succ : graph.getSuccsOf(node)) {
+                if (subgraph.hasNode(succ)) {
+                    subgraph.addEdge(node, succ);
+                }
+            }
+        }
+        List<Element<N>> elements = new ArrayList<>();
+        for (MergedNode<N> component :
+                new TopoSorter<>(new MergedSCCGraph<>(subgraph)).get()) {
+            List<N> members = component.getNodes();
+            N head = members.get(0);
+            for (N node : members) {
+                if (numbers.get(node) < numbers.get(head)) {
+                    head = node;
+                }
+            }
+            if (members.size() == 1 && !subgraph.hasEdge(head, head)) {
+                elements.add(new Element<>(head, null));
+            } else {
+                List<N> rest = new ArrayList<>(members);
+                rest.remove(head);
+                elements.add(new Element<>(head, buildWTO(graph, rest, numbers)));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Iteration over a WTO. The input fact of a node is its IN (OUT) fact
+     * and the output fact is its OUT (IN) fact for forward (backward)
+     * analysis.
+     */
+    private class Iteration {
+
+        private final CFG<Node> cfg;
+
+        private final DataflowResult<Node, Fact> result;
+
+        private final SolverMetrics metrics;
+
+        private final boolean isForward;
+
+        private Iteration(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                          SolverMetrics metrics) {
+            this.cfg = cfg;
+            this.result = result;
+            this.metrics = metrics;
+            this.isForward = analysis.isForward();
+        }
+
+        private void stabilize(List<Element<Node>> elements) {
+            for (Element<Node> element : elements) {
+                if (element.body() == null) {
+                    visit(element.head(), false);
+                } else {
+                    // iterate the component until its head is stable
+                    boolean first = true;
+                    while (visit(element.head(), true) || first) {
+                        stabilize(element.body());
+                        first = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Recomputes the input fact of given node, and transfers the node
+         * if the input fact changed.
+         *
+         * @param widen whether to widen the input fact
+         * @return true if the input fact changed.
+         */
+        private boolean visit(Node node, boolean widen) {
+            if (isForward ? cfg.isEntry(node) : cfg.isExit(node)) {
+                return false;
+            }
+            Fact input = analysis.newInitialFact(cfg);
+            metrics.countFactAllocation();
+            for (Edge<Node> edge : isForward ?
+                    cfg.getInEdgesOf(node) : cfg.getOutEdgesOf(node)) {
+                Fact fact = isForward ?
+                        result.getOutFact(edge.getSource()) :
+                        result.getInFact(edge.getTarget());
+                if (analysis.needTransferEdge(edge)) {
+                    fact = analysis.transferEdge(edge, fact);
+                    metrics.countEdgeTransfer();
+                }
+                analysis.meetInto(fact, input);
+                metrics.countMeet();
+            }
+            Fact oldInput = isForward ?
+                    result.getInFact(node) : result.getOutFact(node);
+            if (oldInput != null) {
+                if (widen) {
+                    input = analysis.widen(oldInput, input);
+                }
+                if (input.equals(oldInput)) {
+                    return false;
+                }
+            }
+            metrics.countNodeVisit();
+            metrics.countNodeTransfer(node);
+            if (isForward) {
+                result.setInFact(node, input);
+                analysis.transferNode(cfg, node, input, result.getOutFact(node));
+            } else {
+                result.setOutFact(node, input);
+                analysis.transferNode(cfg, node, result.getInFact(node), input);
+            }
+            return true;
+        }
+    }
+}
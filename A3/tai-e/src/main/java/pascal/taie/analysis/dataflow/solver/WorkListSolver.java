@@ -26,12 +26,29 @@ import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
+/**
+ * FIFO work-list solver.
+ * <p>
+ * The solver stamps the fact each node propagates (OUT fact in forward
+ * analysis, and IN fact in backward analysis) with a version, which is
+ * bumped whenever the transfer function reports a change of the fact.
+ * Each node keeps its incoming fact across visits and remembers the
+ * versions of the neighbors' facts it has met, so that a visit only
+ * meets the facts which changed since the previous visit of the node.
+ * This relies on the facts of monotone analyses only growing during
+ * solving, in which case meeting the changed facts into the kept fact
+ * gives the same result as meeting all facts into a fresh one, and saves
+ * most meets at the confluences of many edges, e.g., switch joins.
+ */
 class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
     WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
@@ -39,10 +56,11 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
     }
 
     @Override
-    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                  SolverMetrics metrics) {
+        Versions<Node> versions = new Versions<>(cfg.getNumberOfNodes());
         Queue<Node> qe = new LinkedList<>();
         Set<Node> vis = new HashSet<>();
-        Node entry = cfg.getEntry();
         for (Node node : cfg) {
             qe.add(node);
             vis.add(node);
@@ -51,13 +69,32 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
         while (!qe.isEmpty()) {
             Node node = qe.remove();
             vis.remove(node);
+            if (cfg.isEntry(node)) {
+                continue;
+            }
+            metrics.countNodeVisit();
             Set<Edge<Node>> in_edges = cfg.getInEdgesOf(node);
-            Fact new_in = analysis.newInitialFact();
+            Fact in = result.getInFact(node);
+            if (in == null) {
+                in = analysis.newInitialFact(cfg);
+                metrics.countFactAllocation();
+                result.setInFact(node, in);
+            }
+            int[] met = versions.getMet(node, in_edges.size());
+            int i = 0;
             for (Edge<Node> edge : in_edges) {
                 Node in_node = edge.getSource();
-                analysis.meetInto(result.getOutFact(in_node), new_in);
+                int version = versions.get(in_node);
+                if (met[i] != version) {
+                    analysis.meetInto(result.getOutFact(in_node), in);
+                    metrics.countMeet();
+                    met[i] = version;
+                }
+                ++i;
             }
-            if (analysis.transferNode(node, new_in, result.getOutFact(node))) {
+            metrics.countNodeTransfer(node);
+            if (analysis.transferNode(cfg, node, in, result.getOutFact(node))) {
+                versions.bump(node);
                 Set<Edge<Node>> out_edges = cfg.getOutEdgesOf(node);
                 for (Edge<Node> edge : out_edges) {
                     Node out_node = edge.getTarget();
@@ -71,21 +108,83 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
     }
 
     @Override
-    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result,
+                                   SolverMetrics metrics) {
+        Versions<Node> versions = new Versions<>(cfg.getNumberOfNodes());
         boolean need_continue = true;
         while (need_continue) {
             need_continue = false;
             for (Node node : cfg) {
-                if (cfg.isEntry(node) || cfg.isExit(node))  continue;
-                Fact new_out = analysis.newBoundaryFact(cfg);
+                if (cfg.isExit(node))  continue;
                 Set<Edge<Node>> out_edges = cfg.getOutEdgesOf(node);
+                Fact out = result.getOutFact(node);
+                boolean first = out == null;
+                if (first) {
+                    out = analysis.newBoundaryFact(cfg);
+                    metrics.countFactAllocation();
+                    result.setOutFact(node, out);
+                }
+                int[] met = versions.getMet(node, out_edges.size());
+                boolean dirty = first;
+                int i = 0;
                 for (Edge<Node> edge : out_edges) {
                     Node target = edge.getTarget();
-                    analysis.meetInto(result.getInFact(target), new_out);
+                    int version = versions.get(target);
+                    if (met[i] != version) {
+                        analysis.meetInto(result.getInFact(target), out);
+                        metrics.countMeet();
+                        met[i] = version;
+                        dirty = true;
+                    }
+                    ++i;
+                }
+                // no successor changed since the previous visit,
+                // thus the transfer would give the same IN fact
+                if (!dirty) continue;
+                metrics.countNodeVisit();
+                metrics.countNodeTransfer(node);
+                if (analysis.transferNode(cfg, node, result.getInFact(node), out)) {
+                    versions.bump(node);
+                    need_continue = true;
                 }
-                result.setOutFact(node, new_out);
-                need_continue = analysis.transferNode(node, result.getInFact(node), new_out) || need_continue;
             }
         }
     }
+
+    /**
+     * Version stamps of the facts propagated by the nodes, and the versions
+     * of the neighbors' facts which have been met by each node.
+     */
+    private static class Versions<Node> {
+
+        private final Map<Node, Integer> versions;
+
+        /**
+         * For each node, the versions of the facts it has met, in the
+         * iteration order of its in (out) edges in forward (backward)
+         * analysis. -1 means that the fact has never been met.
+         */
+        private final Map<Node, int[]> met;
+
+        private Versions(int capacity) {
+            versions = Maps.newMap(capacity);
+            met = Maps.newMap(capacity);
+        }
+
+        private int get(Node node) {
+            return versions.getOrDefault(node, 0);
+        }
+
+        private void bump(Node node) {
+            versions.merge(node, 1, Integer::sum);
+        }
+
+        private int[] getMet(Node node, int degree) {
+            return met.computeIfAbsent(node, n -> {
+                int[] array = new int[degree];
+                Arrays.fill(array, -1);
+                return array;
+            });
+        }
+    }
 }
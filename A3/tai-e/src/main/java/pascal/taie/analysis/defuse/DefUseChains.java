@@ -0,0 +1,404 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.defuse;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Def-use and use-def chains of the variables in a method.
+ * <p>
+ * A definition is a statement which defines a variable, and a use is
+ * a pair of a statement and a variable used by it. The chains connect
+ * each use with the definitions reaching it (computed by reaching
+ * definition analysis), and vice versa. The chains are stored in int
+ * arrays in compressed sparse row format, so that locating the chains
+ * of a definition or a use takes constant time.
+ * <p>
+ * The chains are built once per IR and cached in the IR, and they require
+ * the CFG of the IR (i.e., the result of {@link CFGBuilder}).
+ * Parameters and {@code this} are defined at method entry without any
+ * statements, thus they are regarded as defined by the entry node of
+ * the CFG, which appears in the chains like the other definitions.
+ */
+public final class DefUseChains {
+
+    /**
+     * Key of the chains in the results of IR.
+     */
+    public static final String ID = "def-use-chains";
+
+    private final IR ir;
+
+    /**
+     * Entry node of the CFG, which defines the parameters and {@code this}.
+     */
+    private final Stmt entry;
+
+    /**
+     * Uses of statement i are in slots [useOffsets[i], useOffsets[i + 1]).
+     */
+    private final int[] useOffsets;
+
+    /**
+     * Index of the variable of each use slot.
+     */
+    private final int[] useVars;
+
+    /**
+     * Definitions reaching use slot i are
+     * reachingDefs[defOffsets[i], defOffsets[i + 1]).
+     */
+    private final int[] defOffsets;
+
+    private final int[] reachingDefs;
+
+    /**
+     * Statements using the definition by statement i are
+     * users[userOffsets[i], userOffsets[i + 1]), where the entry node
+     * of the CFG takes the index after the last statement.
+     */
+    private final int[] userOffsets;
+
+    private final int[] users;
+
+    private DefUseChains(IR ir, Stmt entry, int[] useOffsets, int[] useVars,
+                         int[] defOffsets, int[] reachingDefs) {
+        this.ir = ir;
+        this.entry = entry;
+        this.useOffsets = useOffsets;
+        this.useVars = useVars;
+        this.defOffsets = defOffsets;
+        this.reachingDefs = reachingDefs;
+        // reverse the use-def chains to obtain def-use chains
+        int n = ir.getStmts().size();
+        userOffsets = new int[n + 2];
+        for (int def : reachingDefs) {
+            ++userOffsets[def + 1];
+        }
+        for (int i = 0; i <= n; ++i) {
+            userOffsets[i + 1] += userOffsets[i];
+        }
+        users = new int[reachingDefs.length];
+        int[] next = Arrays.copyOf(userOffsets, n + 1);
+        for (int stmt = 0; stmt < n; ++stmt) {
+            for (int slot = useOffsets[stmt]; slot < useOffsets[stmt + 1]; ++slot) {
+                for (int i = defOffsets[slot]; i < defOffsets[slot + 1]; ++i) {
+                    users[next[reachingDefs[i]]++] = stmt;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the def-use chains of given IR, which are built
+     * at the first call and then cached in the IR.
+     */
+    public static DefUseChains of(IR ir) {
+        return ir.getResult(ID, () -> build(ir));
+    }
+
+    /**
+     * @return the definitions of var reaching stmt, including the entry
+     * node of the CFG if var is a parameter or {@code this} and its value
+     * at method entry may reach stmt. If stmt does not use var, then
+     * returns an empty list.
+     */
+    public List<Stmt> getDefs(Stmt stmt, Var var) {
+        int stmtIndex = stmt.getIndex();
+        if (stmtIndex >= ir.getStmts().size()) {
+            return List.of();
+        }
+        int varIndex = var.getIndex();
+        for (int slot = useOffsets[stmtIndex]; slot < useOffsets[stmtIndex + 1]; ++slot) {
+            if (useVars[slot] == varIndex) {
+                return new StmtList(reachingDefs, defOffsets[slot], defOffsets[slot + 1]);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * @return the statements which use the variable defined by def.
+     * For the entry node of the CFG, returns the statements which use
+     * the values of the parameters and {@code this} at method entry.
+     * If def does not define any variable, then returns an empty list.
+     */
+    public List<Stmt> getUses(Stmt def) {
+        int defIndex = def.getIndex();
+        if (defIndex > ir.getStmts().size()) {
+            return List.of();
+        }
+        return new StmtList(users, userOffsets[defIndex], userOffsets[defIndex + 1]);
+    }
+
+    private static DefUseChains build(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        List<Stmt> stmts = ir.getStmts();
+        int n = stmts.size();
+        // collect uses
+        int[] useOffsets = new int[n + 1];
+        int[] useVars = new int[n];
+        int numUses = 0;
+        for (int i = 0; i < n; ++i) {
+            useOffsets[i] = numUses;
+            for (RValue use : stmts.get(i).getUses()) {
+                if (use instanceof Var var &&
+                        !contains(useVars, useOffsets[i], numUses, var.getIndex())) {
+                    if (numUses == useVars.length) {
+                        useVars = Arrays.copyOf(useVars, numUses * 2 + 1);
+                    }
+                    useVars[numUses++] = var.getIndex();
+                }
+            }
+        }
+        useOffsets[n] = numUses;
+        useVars = Arrays.copyOf(useVars, numUses);
+        // compute reaching definitions, and connect uses to them
+        ReachingDefinitions rd = new ReachingDefinitions(ir, cfg.getEntry());
+        DataflowResult<Stmt, SetFact<Stmt>> result =
+                Solver.makeSolver(rd).solve(cfg);
+        int[] defOffsets = new int[numUses + 1];
+        int[] reachingDefs = new int[numUses];
+        int numDefs = 0;
+        for (int i = 0; i < n; ++i) {
+            BitSetFact<Stmt> in = rd.reachingDefsAt(cfg, stmts.get(i), result);
+            for (int slot = useOffsets[i]; slot < useOffsets[i + 1]; ++slot) {
+                defOffsets[slot] = numDefs;
+                BitSetFact<Stmt> defs = rd.defsOf(useVars[slot]);
+                if (defs != null) {
+                    for (Stmt def : (Iterable<Stmt>) defs.stream()::iterator) {
+                        if (in.contains(def)) {
+                            if (numDefs == reachingDefs.length) {
+                                reachingDefs = Arrays.copyOf(reachingDefs, numDefs * 2 + 1);
+                            }
+                            reachingDefs[numDefs++] = def.getIndex();
+                        }
+                    }
+                }
+            }
+        }
+        defOffsets[numUses] = numDefs;
+        reachingDefs = Arrays.copyOf(reachingDefs, numDefs);
+        return new DefUseChains(ir, cfg.getEntry(),
+                useOffsets, useVars, defOffsets, reachingDefs);
+    }
+
+    private static boolean contains(int[] array, int from, int to, int value) {
+        for (int i = from; i < to; ++i) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unmodifiable view of the statements whose indexes
+     * are in a range of an int array.
+     */
+    private class StmtList extends AbstractList<Stmt> {
+
+        private final int[] stmtIndexes;
+
+        private final int from;
+
+        private final int to;
+
+        private StmtList(int[] stmtIndexes, int from, int to) {
+            this.stmtIndexes = stmtIndexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Stmt get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int stmtIndex = stmtIndexes[from + index];
+            return stmtIndex == entry.getIndex() ? entry : ir.getStmt(stmtIndex);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Reaching definition analysis whose facts are bit sets of
+     * the definition statements, where the entry node of the CFG
+     * is the definition of the parameters and {@code this}.
+     */
+    private static class ReachingDefinitions
+            implements DataflowAnalysis<Stmt, SetFact<Stmt>> {
+
+        private final IR ir;
+
+        private final Stmt entry;
+
+        /**
+         * Definitions of each variable, indexed by variable index.
+         */
+        private final BitSetFact<Stmt>[] defsOfVar;
+
+        /**
+         * The singleton gen set of each definition, indexed by statement index.
+         */
+        private final BitSetFact<Stmt>[] gens;
+
+        private ReachingDefinitions(IR ir, Stmt entry) {
+            this.ir = ir;
+            this.entry = entry;
+            List<Stmt> stmts = ir.getStmts();
+            defsOfVar = newFactArray(ir.getVars().size());
+            gens = newFactArray(stmts.size());
+            for (Var param : getEntryDefinedVars(ir)) {
+                defsOfVar[param.getIndex()] = newFact();
+                defsOfVar[param.getIndex()].add(entry);
+            }
+            for (Stmt stmt : stmts) {
+                if (stmt.getDef().orElse(null) instanceof Var var) {
+                    int varIndex = var.getIndex();
+                    if (defsOfVar[varIndex] == null) {
+                        defsOfVar[varIndex] = newFact();
+                    }
+                    defsOfVar[varIndex].add(stmt);
+                    gens[stmt.getIndex()] = newFact();
+                    gens[stmt.getIndex()].add(stmt);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BitSetFact<Stmt>[] newFactArray(int length) {
+            return (BitSetFact<Stmt>[]) new BitSetFact<?>[length];
+        }
+
+        private static List<Var> getEntryDefinedVars(IR ir) {
+            List<Var> vars = new ArrayList<>(ir.getParams());
+            if (ir.getThis() != null) {
+                vars.add(ir.getThis());
+            }
+            return vars;
+        }
+
+        private BitSetFact<Stmt> newFact() {
+            int n = ir.getStmts().size();
+            return new BitSetFact<>(n + 1,
+                    i -> i == entry.getIndex() ? entry : ir.getStmt(i));
+        }
+
+        /**
+         * @return the definitions of the variable at given index,
+         * or null if the variable is not defined by any statement.
+         */
+        private BitSetFact<Stmt> defsOf(int varIndex) {
+            return defsOfVar[varIndex];
+        }
+
+        /**
+         * @return the definitions reaching the program point before stmt,
+         * i.e., the meet of OUT facts of its predecessors.
+         */
+        private BitSetFact<Stmt> reachingDefsAt(
+                CFG<Stmt> cfg, Stmt stmt, DataflowResult<Stmt, SetFact<Stmt>> result) {
+            BitSetFact<Stmt> in = newFact();
+            for (Stmt pred : cfg.getPredsOf(stmt)) {
+                SetFact<Stmt> predOut = result.getOutFact(pred);
+                if (predOut != null) {
+                    in.union(predOut);
+                }
+            }
+            return in;
+        }
+
+        @Override
+        public boolean isForward() {
+            return true;
+        }
+
+        @Override
+        public SetFact<Stmt> newBoundaryFact(CFG<Stmt> cfg) {
+            BitSetFact<Stmt> boundary = newFact();
+            if (!getEntryDefinedVars(ir).isEmpty()) {
+                boundary.add(entry);
+            }
+            return boundary;
+        }
+
+        @Override
+        public SetFact<Stmt> newInitialFact() {
+            return newFact();
+        }
+
+        @Override
+        public void meetInto(SetFact<Stmt> fact, SetFact<Stmt> target) {
+            target.union(fact);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, SetFact<Stmt> in, SetFact<Stmt> out) {
+            BitSetFact<Stmt> bitIn = (BitSetFact<Stmt>) in;
+            BitSetFact<Stmt> bitOut = (BitSetFact<Stmt>) out;
+            int index = stmt.getIndex();
+            BitSetFact<Stmt> gen = index < gens.length ? gens[index] : null;
+            if (gen == null) {
+                // stmt does not define any variable
+                if (bitOut.equals(bitIn)) {
+                    return false;
+                }
+                bitOut.set(bitIn);
+                return true;
+            }
+            Var var = (Var) stmt.getDef().get();
+            return bitOut.setGenKill(bitIn, gen, defsOfVar[var.getIndex()]);
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return false;
+        }
+
+        @Override
+        public SetFact<Stmt> transferEdge(Edge<Stmt> edge, SetFact<Stmt> nodeFact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,767 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.util.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Map implemented by a persistent hash array mapped trie (in the
+ * compressed CHAMP layout). The trie nodes are immutable: an update
+ * copies only the nodes on the path from the root to the changed entry
+ * and shares all other nodes, thus {@link #copy()} only needs to copy
+ * the root pointer, which takes constant time and space.
+ * <p>
+ * The trie is kept in canonical form, i.e., the same mappings always
+ * result in the same trie shape, so that two maps can be compared node
+ * by node, and the comparison skips the subtrees shared by both maps.
+ * <p>
+ * This map does not permit null keys or null values. Its views do not
+ * support removal.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final String NULL_KEY = "PersistentMap does not permit null keys";
+
+    private static final String NULL_VALUE = "PersistentMap does not permit null values";
+
+    private static final int BITS_PER_LEVEL = 5;
+
+    private static final int HASH_BITS = 32;
+
+    private static final Node EMPTY_NODE = new BitmapNode(0, 0, new Object[0]);
+
+    private Node root;
+
+    private int size;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    public PersistentMap() {
+        this(EMPTY_NODE, 0);
+    }
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Creates and returns a copy of this map in constant time.
+     * Subsequent modifications on either map do not affect the other one.
+     */
+    public PersistentMap<K, V> copy() {
+        return new PersistentMap<>(root, size);
+    }
+
+    /**
+     * Sets the content of this map to the same as given map
+     * in constant time.
+     */
+    public void set(PersistentMap<K, V> other) {
+        root = other.root;
+        size = other.size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        Objects.requireNonNull(key, NULL_KEY);
+        return (V) root.find(key, hash(key), 0);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key, NULL_KEY);
+        Objects.requireNonNull(value, NULL_VALUE);
+        Change change = new Change();
+        root = root.put(key, value, hash(key), 0, change);
+        size += change.sizeDelta;
+        return (V) change.oldValue;
+    }
+
+    /**
+     * Puts all mappings of given map into this map. The subtrees shared
+     * by the two maps are skipped, thus this is much cheaper than putting
+     * the mappings one by one when the two maps derive from the same map.
+     *
+     * @return true if this map changed as a result of the call.
+     */
+    public boolean putAll(PersistentMap<K, V> other) {
+        if (isEmpty()) {
+            set(other);
+            return !other.isEmpty();
+        } else {
+            Node oldRoot = root;
+            Change change = new Change();
+            root = root.putAll(other.root, 0, change);
+            size += change.sizeDelta;
+            // nodes are copied only when their content changes
+            return root != oldRoot;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        Objects.requireNonNull(key, NULL_KEY);
+        Change change = new Change();
+        root = root.remove(key, hash(key), 0, change);
+        size += change.sizeDelta;
+        return (V) change.oldValue;
+    }
+
+    @Override
+    public void clear() {
+        root = EMPTY_NODE;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return es;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof PersistentMap<?, ?> that) {
+            return size == that.size && root.equivalent(that.root);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & ((1 << BITS_PER_LEVEL) - 1);
+    }
+
+    private static int bitpos(int mask) {
+        return 1 << mask;
+    }
+
+    /**
+     * Records the effect of an update on the trie.
+     */
+    private static class Change {
+
+        private Object oldValue;
+
+        private int sizeDelta;
+    }
+
+    private abstract static class Node {
+
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        /**
+         * Puts all entries of given node (at the same level) into this node.
+         */
+        Node putAll(Node other, int shift, Change change) {
+            if (this == other) {
+                return this;
+            }
+            Node result = this;
+            Iterator<Object[]> it = other.iterator();
+            while (it.hasNext()) {
+                Object[] entry = it.next();
+                result = result.put(entry[0], entry[1], hash(entry[0]), shift, change);
+            }
+            return result;
+        }
+
+        /**
+         * @return true if this node and given node hold the same entries.
+         */
+        abstract boolean equivalent(Node other);
+
+        abstract int payloadArity();
+
+        abstract Object keyAt(int i);
+
+        abstract Object valueAt(int i);
+
+        abstract int nodeArity();
+
+        abstract Node nodeAt(int i);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < payloadArity(); ++i) {
+                action.accept(keyAt(i), valueAt(i));
+            }
+            for (int i = 0; i < nodeArity(); ++i) {
+                nodeAt(i).forEach(action);
+            }
+        }
+
+        /**
+         * @return iterator over the entries (as [key, value] pairs)
+         * of the subtree rooted by this node.
+         */
+        Iterator<Object[]> iterator() {
+            return new NodeIterator(this);
+        }
+
+        /**
+         * @return true if this node holds exactly one entry and no
+         * sub-nodes, which can be inlined into its parent.
+         */
+        boolean isSingleton() {
+            return payloadArity() == 1 && nodeArity() == 0;
+        }
+    }
+
+    /**
+     * Trie node which holds up to 32 slots. Each slot is either an inlined
+     * entry or a sub-node. The entries are stored as key-value pairs at the
+     * front of {@link #content}, and the sub-nodes are stored in reverse
+     * order at the end of {@link #content}.
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int dataMap;
+
+        private final int nodeMap;
+
+        private final Object[] content;
+
+        private BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private static int index(int bitmap, int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private int dataIndex(int bit) {
+            return index(dataMap, bit);
+        }
+
+        private int nodeIndex(int bit) {
+            return content.length - 1 - index(nodeMap, bit);
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return key.equals(content[2 * i]) ? content[2 * i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node) content[nodeIndex(bit)]).find(key, hash, shift + BITS_PER_LEVEL);
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                Object oldKey = content[2 * i];
+                Object oldValue = content[2 * i + 1];
+                if (key.equals(oldKey)) {
+                    change.oldValue = oldValue;
+                    if (value.equals(oldValue)) {
+                        return this;
+                    }
+                    Object[] newContent = content.clone();
+                    newContent[2 * i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, newContent);
+                }
+                Node subNode = merge(oldKey, oldValue, hash(oldKey),
+                        key, value, hash, shift + BITS_PER_LEVEL);
+                ++change.sizeDelta;
+                return migrateToNode(bit, subNode);
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = nodeIndex(bit);
+                Node subNode = (Node) content[i];
+                Node newSubNode = subNode.put(key, value, hash, shift + BITS_PER_LEVEL, change);
+                return newSubNode == subNode ? this : setNode(i, newSubNode);
+            }
+            ++change.sizeDelta;
+            return insertEntry(bit, key, value);
+        }
+
+        @Override
+        Node putAll(Node other, int shift, Change change) {
+            if (this == other) {
+                return this;
+            }
+            if (!(other instanceof BitmapNode that)) {
+                return super.putAll(other, shift, change);
+            }
+            Node result = this;
+            for (int i = 0; i < that.payloadArity(); ++i) {
+                Object key = that.keyAt(i);
+                result = result.put(key, that.valueAt(i), hash(key), shift, change);
+            }
+            for (int bits = that.nodeMap; bits != 0; bits &= bits - 1) {
+                int bit = bits & -bits;
+                Node otherSubNode = (Node) that.content[that.nodeIndex(bit)];
+                BitmapNode current = (BitmapNode) result;
+                if ((current.nodeMap & bit) != 0) {
+                    int i = current.nodeIndex(bit);
+                    Node subNode = (Node) current.content[i];
+                    Node newSubNode = subNode.putAll(otherSubNode, shift + BITS_PER_LEVEL, change);
+                    if (newSubNode != subNode) {
+                        result = current.setNode(i, newSubNode);
+                    }
+                } else {
+                    Iterator<Object[]> it = otherSubNode.iterator();
+                    while (it.hasNext()) {
+                        Object[] entry = it.next();
+                        result = result.put(entry[0], entry[1], hash(entry[0]), shift, change);
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!key.equals(content[2 * i])) {
+                    return this;
+                }
+                change.oldValue = content[2 * i + 1];
+                --change.sizeDelta;
+                if (shift > 0 && payloadArity() == 2 && nodeArity() == 0) {
+                    // the remaining entry will be inlined into the parent,
+                    // so place it as if it was at the root level
+                    int j = 1 - i;
+                    Object remainingKey = content[2 * j];
+                    return new BitmapNode(bitpos(mask(hash(remainingKey), 0)), 0,
+                            new Object[]{ remainingKey, content[2 * j + 1] });
+                }
+                return removeEntry(bit);
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = nodeIndex(bit);
+                Node subNode = (Node) content[i];
+                Node newSubNode = subNode.remove(key, hash, shift + BITS_PER_LEVEL, change);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                if (newSubNode.isSingleton()) {
+                    if (payloadArity() == 0 && nodeArity() == 1) {
+                        // escalate the singleton to the parent
+                        return newSubNode;
+                    }
+                    return migrateToEntry(bit, newSubNode);
+                }
+                return setNode(i, newSubNode);
+            }
+            return this;
+        }
+
+        private Node setNode(int i, Node subNode) {
+            Object[] newContent = content.clone();
+            newContent[i] = subNode;
+            return new BitmapNode(dataMap, nodeMap, newContent);
+        }
+
+        private Node insertEntry(int bit, Object key, Object value) {
+            int i = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, i);
+            newContent[i] = key;
+            newContent[i + 1] = value;
+            System.arraycopy(content, i, newContent, i + 2, content.length - i);
+            return new BitmapNode(dataMap | bit, nodeMap, newContent);
+        }
+
+        private Node removeEntry(int bit) {
+            int i = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, i);
+            System.arraycopy(content, i + 2, newContent, i, content.length - i - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap, newContent);
+        }
+
+        /**
+         * Replaces the entry at given bit by given sub-node.
+         */
+        private Node migrateToNode(int bit, Node subNode) {
+            int oldIndex = 2 * dataIndex(bit);
+            // index of the new sub-node after removing the entry
+            int newIndex = content.length - 2 - index(nodeMap, bit);
+            Object[] newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, oldIndex);
+            System.arraycopy(content, oldIndex + 2, newContent, oldIndex, newIndex - oldIndex);
+            newContent[newIndex] = subNode;
+            System.arraycopy(content, newIndex + 2, newContent, newIndex + 1,
+                    content.length - newIndex - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContent);
+        }
+
+        /**
+         * Replaces the sub-node at given bit by the only entry of it.
+         */
+        private Node migrateToEntry(int bit, Node subNode) {
+            int oldIndex = nodeIndex(bit);
+            int newIndex = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 1];
+            System.arraycopy(content, 0, newContent, 0, newIndex);
+            newContent[newIndex] = subNode.keyAt(0);
+            newContent[newIndex + 1] = subNode.valueAt(0);
+            System.arraycopy(content, newIndex, newContent, newIndex + 2, oldIndex - newIndex);
+            System.arraycopy(content, oldIndex + 1, newContent, oldIndex + 2,
+                    content.length - oldIndex - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContent);
+        }
+
+        @Override
+        boolean equivalent(Node other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof BitmapNode that) ||
+                    dataMap != that.dataMap || nodeMap != that.nodeMap) {
+                return false;
+            }
+            int payloadLength = 2 * payloadArity();
+            for (int i = 0; i < payloadLength; ++i) {
+                if (!content[i].equals(that.content[i])) {
+                    return false;
+                }
+            }
+            for (int i = payloadLength; i < content.length; ++i) {
+                if (!((Node) content[i]).equivalent((Node) that.content[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return content[2 * i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return content[2 * i + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            return (Node) content[content.length - 1 - i];
+        }
+    }
+
+    /**
+     * Node for the keys whose hash codes are identical, which can only
+     * appear below the deepest level of the trie.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private final Object[] keys;
+
+        private final Object[] values;
+
+        private CollisionNode(int hash, Object[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; ++i) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i >= 0 ? values[i] : null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                change.oldValue = values[i];
+                if (value.equals(values[i])) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[i] = value;
+                return new CollisionNode(hash, keys, newValues);
+            }
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            ++change.sizeDelta;
+            return new CollisionNode(hash, newKeys, newValues);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            change.oldValue = values[i];
+            --change.sizeDelta;
+            if (keys.length == 2) {
+                // the remaining entry will be inlined into the parent
+                int j = 1 - i;
+                return new BitmapNode(bitpos(mask(hash, 0)), 0,
+                        new Object[]{ keys[j], values[j] });
+            }
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(values, 0, newValues, 0, i);
+            System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+            return new CollisionNode(hash, newKeys, newValues);
+        }
+
+        @Override
+        boolean equivalent(Node other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CollisionNode that) ||
+                    hash != that.hash || keys.length != that.keys.length) {
+                return false;
+            }
+            // entries of collision nodes are unordered
+            for (int i = 0; i < keys.length; ++i) {
+                int j = that.indexOf(keys[i]);
+                if (j < 0 || !values[i].equals(that.values[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int payloadArity() {
+            return keys.length;
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return keys[i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return values[i];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            throw new IndexOutOfBoundsException(i);
+        }
+    }
+
+    /**
+     * Creates a sub-tree (at given level) for two entries.
+     */
+    private static Node merge(Object key0, Object value0, int hash0,
+                              Object key1, Object value1, int hash1, int shift) {
+        if (shift >= HASH_BITS) {
+            return new CollisionNode(hash0,
+                    new Object[]{ key0, key1 }, new Object[]{ value0, value1 });
+        }
+        int mask0 = mask(hash0, shift);
+        int mask1 = mask(hash1, shift);
+        if (mask0 != mask1) {
+            Object[] content = mask0 < mask1 ?
+                    new Object[]{ key0, value0, key1, value1 } :
+                    new Object[]{ key1, value1, key0, value0 };
+            return new BitmapNode(bitpos(mask0) | bitpos(mask1), 0, content);
+        }
+        Node subNode = merge(key0, value0, hash0,
+                key1, value1, hash1, shift + BITS_PER_LEVEL);
+        return new BitmapNode(0, bitpos(mask0), new Object[]{ subNode });
+    }
+
+    /**
+     * Iterates the entries of a subtree in depth-first order.
+     */
+    private static class NodeIterator implements Iterator<Object[]> {
+
+        private final Deque<Node> pendingNodes = new ArrayDeque<>();
+
+        private Node current;
+
+        private int payloadIndex;
+
+        private NodeIterator(Node root) {
+            current = root;
+            pushSubNodes(root);
+            advance();
+        }
+
+        private void pushSubNodes(Node node) {
+            for (int i = 0; i < node.nodeArity(); ++i) {
+                pendingNodes.push(node.nodeAt(i));
+            }
+        }
+
+        private void advance() {
+            while (current != null && payloadIndex >= current.payloadArity()) {
+                current = pendingNodes.poll();
+                payloadIndex = 0;
+                if (current != null) {
+                    pushSubNodes(current);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] entry = { current.keyAt(payloadIndex), current.valueAt(payloadIndex) };
+            ++payloadIndex;
+            advance();
+            return entry;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Iterator<Object[]> it = root.iterator();
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map.Entry<K, V> next() {
+            Object[] entry = it.next();
+            return new SimpleImmutableEntry<>((K) entry[0], (V) entry[1]);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.DeadCodeDetection;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+
+import java.util.List;
+
+public class MethodAnalysisDriverTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/deadcode/";
+
+    /**
+     * Runs livevar, constprop and deadcode as a pipeline by
+     * {@link MethodAnalysisDriver}, and checks that their results are
+     * the same as the results of running the analyses one by one.
+     */
+    void testPipeline(String main) {
+        List<IR> irs = Tests.buildIRs(main, CLASS_PATH,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false",
+                "-a", "deadcode=pipeline-parallelism:4");
+        List<MethodAnalysis> analyses = List.of(
+                new LiveVariableAnalysis(new AnalysisConfig(
+                        LiveVariableAnalysis.ID, "strongly", false)),
+                new ConstantPropagation(new AnalysisConfig(
+                        ConstantPropagation.ID, "edge-refine", false)),
+                new DeadCodeDetection(new AnalysisConfig(DeadCodeDetection.ID)));
+        for (IR ir : irs) {
+            for (MethodAnalysis analysis : analyses) {
+                Object given = ir.getResult(analysis.getId());
+                Object expected = analysis.analyze(ir);
+                Tests.assertSameResult(analysis.getId(), ir, expected, given);
+                // the analyses run later use the results of sequential runs
+                ir.storeResult(analysis.getId(), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testLoops() {
+        testPipeline("Loops");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranch() {
+        testPipeline("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testDeadAssignment() {
+        testPipeline("DeadAssignment");
+    }
+}
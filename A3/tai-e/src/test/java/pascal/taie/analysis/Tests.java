@@ -25,14 +25,23 @@ package pascal.taie.analysis;
 import org.junit.Assert;
 import pascal.taie.Main;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.fact.NodeResult;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Static utility methods for testing.
@@ -95,6 +104,58 @@ public final class Tests {
         }
     }
 
+    /**
+     * Builds the world for a test case, runs the given analyses, and
+     * returns the IRs of the methods of the application classes.
+     *
+     * @param main      the main class to be analyzed
+     * @param classPath where the main class is located
+     * @param opts      the analyses to run, e.g., "-a", "livevar=strongly:false"
+     */
+    public static List<IR> buildIRs(String main, String classPath, String... opts) {
+        List<String> args = new ArrayList<>();
+        args.add("-pp");
+        Collections.addAll(args, "-cp", classPath);
+        Collections.addAll(args, "-m", main);
+        Collections.addAll(args, opts);
+        Main.main(args.toArray(new String[0]));
+        return MethodAnalysisDriver.getApplicationMethods()
+                .stream()
+                .map(JMethod::getIR)
+                .toList();
+    }
+
+    /**
+     * Asserts that two results of an analysis on the same IR are equal.
+     * The results of data-flow analyses are compared fact by fact.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void assertSameResult(String message, IR ir,
+                                        Object expected, Object given) {
+        if (expected instanceof NodeResult e && given instanceof NodeResult g) {
+            for (Stmt stmt : ir) {
+                String prefix = message + " " + ir.getMethod() + " " + stmt;
+                Assert.assertEquals(prefix + " (IN)",
+                        e.getInFact(stmt), g.getInFact(stmt));
+                Assert.assertEquals(prefix + " (OUT)",
+                        e.getOutFact(stmt), g.getOutFact(stmt));
+            }
+        } else {
+            Assert.assertEquals(message + " " + ir.getMethod(), expected, given);
+        }
+    }
+
+    /**
+     * Deletes given directory and all files in it.
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
     public static void testPTA(String dir, String main, String... opts) {
         doTestPTA("pta", dir, main, opts);
     }
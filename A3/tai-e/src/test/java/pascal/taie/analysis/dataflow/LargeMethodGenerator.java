@@ -0,0 +1,229 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates Java sources of classes with a single large method, which
+ * exercise the data-flow analyses at scale. The method declares a number
+ * of int variables and consists of randomly chosen assignments, arithmetic,
+ * branches, switches and loops, including branches that are unreachable
+ * under constant propagation and assignments that are dead.
+ * <p>
+ * The size and shape of the method are configured by the number of
+ * statements, the number of variables, the maximum nesting depth of
+ * loops (and branches), and the fan-out of switches. The generation is
+ * deterministic for given configuration and seed.
+ */
+public final class LargeMethodGenerator {
+
+    private static final int DEFAULT_LOOP_DEPTH = 3;
+
+    private static final int DEFAULT_SWITCH_FAN_OUT = 4;
+
+    private static final String[] OPS = {"+", "-", "*", "/", "%", "&", "|", "^"};
+
+    private static final String[] CMPS = {"<", "<=", ">", ">=", "==", "!="};
+
+    private final int statements;
+
+    private final int variables;
+
+    private final int loopDepth;
+
+    private final int switchFanOut;
+
+    private final Random random;
+
+    private final StringBuilder builder = new StringBuilder();
+
+    /**
+     * Number of statements generated so far.
+     */
+    private int count;
+
+    /**
+     * Number of loop variables declared so far.
+     */
+    private int loopVars;
+
+    /**
+     * Creates a generator with default loop depth and switch fan-out.
+     *
+     * @param statements number of statements of the method
+     * @param variables  number of int variables of the method
+     * @param seed       seed of the random choices
+     */
+    public LargeMethodGenerator(int statements, int variables, long seed) {
+        this(statements, variables, DEFAULT_LOOP_DEPTH, DEFAULT_SWITCH_FAN_OUT, seed);
+    }
+
+    /**
+     * @param statements   number of statements of the method
+     * @param variables    number of int variables of the method
+     * @param loopDepth    maximum nesting depth of loops and branches
+     * @param switchFanOut number of cases (besides default) of switches,
+     *                     0 means no switches
+     * @param seed         seed of the random choices
+     */
+    public LargeMethodGenerator(int statements, int variables,
+                                int loopDepth, int switchFanOut, long seed) {
+        if (statements <= 0 || variables <= 0) {
+            throw new IllegalArgumentException(
+                    "statements and variables must be positive");
+        }
+        if (loopDepth < 0 || switchFanOut < 0) {
+            throw new IllegalArgumentException(
+                    "loopDepth and switchFanOut must be non-negative");
+        }
+        this.statements = statements;
+        this.variables = variables;
+        this.loopDepth = loopDepth;
+        this.switchFanOut = switchFanOut;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return the source of a class with given name, whose method
+     * {@code int run(int p)} is generated.
+     */
+    public String generate(String className) {
+        builder.setLength(0);
+        count = 0;
+        loopVars = 0;
+        builder.append("class ").append(className).append(" {\n\n");
+        builder.append("    int run(int p) {\n");
+        for (int i = 0; i < variables; ++i) {
+            line(2, "int v" + i + " = " + (i == 0 ? "p" : random.nextInt(100)) + ";");
+        }
+        while (count < statements) {
+            statement(2, 0);
+        }
+        line(2, "return v0;");
+        builder.append("    }\n}\n");
+        return builder.toString();
+    }
+
+    /**
+     * Generates the class and writes it to {@code dir/className.java}.
+     *
+     * @return the path of the written file
+     */
+    public Path write(Path dir, String className) {
+        Path file = dir.resolve(className + ".java");
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(file, generate(className));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    private void statement(int indent, int depth) {
+        ++count;
+        int choice = random.nextInt(depth < loopDepth ? 12 : 7);
+        switch (choice) {
+            case 0, 1, 2 -> line(indent, var() + " = " + random.nextInt(100) + ";");
+            case 3, 4, 5 -> line(indent, var() + " = " + var() + " " +
+                    OPS[random.nextInt(OPS.length)] + " " + var() + ";");
+            case 6 -> line(indent, var() + " = " + var() + ";");
+            case 7 -> {
+                // the condition may be decided by constant propagation
+                line(indent, "if (" + condition() + ") {");
+                block(indent + 1, depth + 1);
+                line(indent, "} else {");
+                block(indent + 1, depth + 1);
+                line(indent, "}");
+            }
+            case 8 -> {
+                String v = var();
+                line(indent, "while (" + v + " < " + random.nextInt(100) + ") {");
+                block(indent + 1, depth + 1);
+                line(indent + 1, v + " = " + v + " + 1;");
+                line(indent, "}");
+            }
+            case 9 -> loopNest(indent, depth, 1);
+            case 10 -> {
+                if (switchFanOut > 0) {
+                    switchStatement(indent, depth);
+                } else {
+                    line(indent, var() + " = " + var() + ";");
+                }
+            }
+            default -> loopNest(indent, depth, loopDepth - depth);
+        }
+    }
+
+    /**
+     * Generates {@code levels} perfectly nested for-loops.
+     */
+    private void loopNest(int indent, int depth, int levels) {
+        for (int i = 0; i < levels; ++i) {
+            String v = "i" + loopVars++;
+            line(indent + i, "for (int " + v + " = 0; " + v + " < " +
+                    var() + "; ++" + v + ") {");
+        }
+        block(indent + levels, depth + levels);
+        for (int i = levels - 1; i >= 0; --i) {
+            line(indent + i, "}");
+        }
+    }
+
+    private void switchStatement(int indent, int depth) {
+        line(indent, "switch (" + var() + ") {");
+        for (int i = 0; i < switchFanOut; ++i) {
+            line(indent + 1, "case " + i + ":");
+            block(indent + 2, depth + 1);
+            line(indent + 2, "break;");
+        }
+        line(indent + 1, "default:");
+        block(indent + 2, depth + 1);
+        line(indent, "}");
+    }
+
+    private void block(int indent, int depth) {
+        int size = 1 + random.nextInt(8);
+        for (int i = 0; i < size && count < statements; ++i) {
+            statement(indent, depth);
+        }
+    }
+
+    private String condition() {
+        String right = random.nextBoolean() ? var() : String.valueOf(random.nextInt(100));
+        return var() + " " + CMPS[random.nextInt(CMPS.length)] + " " + right;
+    }
+
+    private String var() {
+        return "v" + random.nextInt(variables);
+    }
+
+    private void line(int indent, String text) {
+        builder.append("    ".repeat(indent)).append(text).append('\n');
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.analysis.MethodAnalysis;
+import pascal.taie.analysis.MethodAnalysisDriver;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.analysis.DeadCodeDetection;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scaling test of the data-flow analyses on generated large methods
+ * (see {@link LargeMethodGenerator}) of increasing sizes.
+ * <p>
+ * For each size, the test records the time of each analysis over the
+ * method (the minimum of a few runs) and the memory retained by its
+ * results, and writes the curves to {@value #REPORT}. The test fails
+ * if the growth of time or memory w.r.t. the size, i.e., the slope of
+ * the log-log curve, exceeds the threshold given by system property
+ * {@code scaling.max-exponent} (1.5 by default), which indicates
+ * super-linear scaling.
+ * <p>
+ * As the test takes minutes, it is skipped unless system property
+ * {@code scaling} is set, e.g., by {@code ./gradlew test -Pscaling}.
+ */
+public class ScalingTest {
+
+    private static final int[] SIZES = {2000, 4000, 8000, 16000};
+
+    private static final int VARIABLES = 64;
+
+    private static final int LOOP_DEPTH = 3;
+
+    private static final int SWITCH_FAN_OUT = 4;
+
+    private static final int RUNS = 3;
+
+    private static final String REPORT = "build/reports/scaling/dataflow.csv";
+
+    private static final double MAX_EXPONENT = Double.parseDouble(
+            System.getProperty("scaling.max-exponent", "1.5"));
+
+    private static final List<String> ANALYSES = List.of(
+            LiveVariableAnalysis.ID, ConstantPropagation.ID, DeadCodeDetection.ID);
+
+    /**
+     * Analyses whose results grow with the size of the method,
+     * thus their memory is checked.
+     */
+    private static final List<String> MEMORY_CHECKED = List.of(
+            LiveVariableAnalysis.ID, ConstantPropagation.ID);
+
+    /**
+     * Time (in nanoseconds) and retained memory (in bytes) of an analysis.
+     */
+    private record Cost(long time, long memory) {
+    }
+
+    @Test
+    public void testScaling() throws IOException {
+        Assume.assumeTrue("scaling test is enabled by -Pscaling",
+                System.getProperty("scaling") != null);
+        // warm up the JIT compiler
+        measure(SIZES[0]);
+        List<Map<String, Cost>> costs = new ArrayList<>();
+        for (int size : SIZES) {
+            costs.add(measure(size));
+        }
+        writeReport(costs);
+        for (String id : ANALYSES) {
+            double[] times = new double[SIZES.length];
+            double[] memories = new double[SIZES.length];
+            for (int i = 0; i < SIZES.length; ++i) {
+                times[i] = costs.get(i).get(id).time();
+                memories[i] = costs.get(i).get(id).memory();
+            }
+            double timeExponent = exponent(times);
+            Assert.assertTrue(String.format("Time of %s scales super-linearly: " +
+                            "exponent %.2f > %.2f", id, timeExponent, MAX_EXPONENT),
+                    timeExponent <= MAX_EXPONENT);
+            if (MEMORY_CHECKED.contains(id)) {
+                double memoryExponent = exponent(memories);
+                Assert.assertTrue(String.format("Memory of %s scales super-linearly: " +
+                                "exponent %.2f > %.2f", id, memoryExponent, MAX_EXPONENT),
+                        memoryExponent <= MAX_EXPONENT);
+            }
+        }
+    }
+
+    /**
+     * Generates a method of given size, and measures the analyses on it.
+     */
+    private static Map<String, Cost> measure(int size) throws IOException {
+        Path dir = Files.createTempDirectory("tai-e-scaling");
+        try {
+            String mainClass = "Large" + size;
+            new LargeMethodGenerator(size, VARIABLES, LOOP_DEPTH, SWITCH_FAN_OUT, size)
+                    .write(dir, mainClass);
+            // build the world, and the CFGs and the results required by deadcode
+            Main.main(new String[]{"-pp", "-cp", dir.toString(), "-m", mainClass,
+                    "-a", "livevar=strongly:false", "-a", "constprop=edge-refine:false",
+                    "-a", DeadCodeDetection.ID});
+        } finally {
+            Tests.deleteRecursively(dir);
+        }
+        List<IR> irs = MethodAnalysisDriver.getApplicationMethods()
+                .stream()
+                .map(JMethod::getIR)
+                .toList();
+        Map<String, MethodAnalysis> analyses = Map.of(
+                LiveVariableAnalysis.ID, new LiveVariableAnalysis(
+                        new AnalysisConfig(LiveVariableAnalysis.ID, "strongly", false)),
+                ConstantPropagation.ID, new ConstantPropagation(
+                        new AnalysisConfig(ConstantPropagation.ID, "edge-refine", false)),
+                DeadCodeDetection.ID, new DeadCodeDetection(
+                        new AnalysisConfig(DeadCodeDetection.ID)));
+        Map<String, Cost> costs = new LinkedHashMap<>();
+        for (String id : ANALYSES) {
+            MethodAnalysis analysis = analyses.get(id);
+            long time = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; ++i) {
+                long start = System.nanoTime();
+                irs.forEach(analysis::analyze);
+                time = Math.min(time, System.nanoTime() - start);
+            }
+            long before = usedHeap();
+            List<Object> results = irs.stream()
+                    .map(analysis::analyze)
+                    .toList();
+            long memory = Math.max(0, usedHeap() - before);
+            Reference.reachabilityFence(results);
+            costs.put(id, new Cost(time, memory));
+        }
+        return costs;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return the slope of the least-squares fit of log(values)
+     * against log(SIZES).
+     */
+    private static double exponent(double[] values) {
+        int n = SIZES.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < n; ++i) {
+            double x = Math.log(SIZES[i]);
+            double y = Math.log(Math.max(values[i], 1));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    private static void writeReport(List<Map<String, Cost>> costs) throws IOException {
+        Path report = Path.of(REPORT);
+        Files.createDirectories(report.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(report))) {
+            out.println("size,analysis,time(ms),memory(KB)");
+            for (int i = 0; i < SIZES.length; ++i) {
+                for (Map.Entry<String, Cost> e : costs.get(i).entrySet()) {
+                    out.printf("%d,%s,%.3f,%d%n", SIZES[i], e.getKey(),
+                            e.getValue().time() / 1e6, e.getValue().memory() / 1024);
+                }
+            }
+        }
+    }
+}
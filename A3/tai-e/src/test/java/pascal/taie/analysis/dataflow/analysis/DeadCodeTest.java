@@ -25,13 +25,29 @@ package pascal.taie.analysis.dataflow.analysis;
 import org.junit.Test;
 import pascal.taie.analysis.Tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class DeadCodeTest {
 
     void testDCD(String inputClass) {
+        testDCD(inputClass, "livevar=strongly:false",
+                "constprop=edge-refine:false");
+    }
+
+    void testDCD(String inputClass, String liveVarOpts, String constPropOpts) {
         Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
                 DeadCodeDetection.ID,
-                "-a", "livevar=strongly:false",
-                "-a", "constprop=edge-refine:false");
+                "-a", liveVarOpts,
+                "-a", constPropOpts);
+    }
+
+    void testSCCP(String inputClass) {
+        // constant propagation is not run, as it is not required by sccp
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID, "sccp:true",
+                "-a", "livevar=strongly:false");
     }
 
     @Test
@@ -58,4 +74,140 @@ public class DeadCodeTest {
     public void testLoops() {
         testDCD("Loops");
     }
+
+    @Test
+    public void testDeadAssignmentBitSet() {
+        testDCD("DeadAssignment", "livevar=strongly:false;bitset:true",
+                "constprop=edge-refine:false");
+    }
+
+    @Test
+    public void testLoopsBitSet() {
+        testDCD("Loops", "livevar=strongly:false;bitset:true",
+                "constprop=edge-refine:false");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchPriority() {
+        testDCD("UnreachableSwitchBranch",
+                "livevar=strongly:false;solver:priority",
+                "constprop=edge-refine:false;solver:priority");
+    }
+
+    @Test
+    public void testLoopsPriority() {
+        testDCD("Loops",
+                "livevar=strongly:false;solver:priority",
+                "constprop=edge-refine:false;solver:priority");
+    }
+
+    @Test
+    public void testUnreachableIfBranchDense() {
+        testDCD("UnreachableIfBranch", "livevar=strongly:false",
+                "constprop=edge-refine:false;dense:true");
+    }
+
+    @Test
+    public void testLoopsDense() {
+        testDCD("Loops", "livevar=strongly:false",
+                "constprop=edge-refine:false;dense:true");
+    }
+
+    @Test
+    public void testDeadAssignmentBlock() {
+        testDCD("DeadAssignment",
+                "livevar=strongly:false;solver:block",
+                "constprop=edge-refine:false;solver:block");
+    }
+
+    @Test
+    public void testLoopsBlock() {
+        testDCD("Loops",
+                "livevar=strongly:false;solver:block",
+                "constprop=edge-refine:false;solver:block");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchWTO() {
+        testDCD("UnreachableSwitchBranch",
+                "livevar=strongly:false;solver:wto",
+                "constprop=edge-refine:false;solver:wto");
+    }
+
+    @Test
+    public void testLoopsWTO() {
+        testDCD("Loops",
+                "livevar=strongly:false;solver:wto",
+                "constprop=edge-refine:false;solver:wto");
+    }
+
+    @Test
+    public void testUnreachableIfBranchPruned() {
+        testDCD("UnreachableIfBranch", "livevar=strongly:false",
+                "constprop=edge-refine:false;prune-dead-vars:true");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchPruned() {
+        testDCD("UnreachableSwitchBranch", "livevar=strongly:false",
+                "constprop=edge-refine:false;prune-dead-vars:true");
+    }
+
+    @Test
+    public void testDeadAssignmentPruned() {
+        testDCD("DeadAssignment", "livevar=strongly:false",
+                "constprop=edge-refine:false;prune-dead-vars:true");
+    }
+
+    @Test
+    public void testDeadAssignmentPrunedBeforeLiveVars() {
+        // constant propagation runs a bit-set liveness on the same IRs
+        // before livevar, whose hash-based facts must not take the gen
+        // and kill sets cached by it
+        Tests.test("DeadAssignment", "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "constprop=edge-refine:false;prune-dead-vars:true",
+                "-a", "livevar=strongly:false;bitset:false");
+    }
+
+    @Test
+    public void testLoopsCached() throws IOException {
+        Path dir = Files.createTempDirectory("tai-e-dataflow-cache");
+        try {
+            // the first run misses the empty cache, and the second run
+            // loads the results cached by the first run
+            for (int i = 0; i < 2; ++i) {
+                testDCD("Loops",
+                        "livevar=strongly:false;cache-dir:" + dir,
+                        "constprop=edge-refine:false;cache-dir:" + dir);
+            }
+        } finally {
+            Tests.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testUnreachableIfBranchSCCP() {
+        testSCCP("UnreachableIfBranch");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchSCCP() {
+        testSCCP("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testControlFlowUnreachableSCCP() {
+        testSCCP("ControlFlowUnreachable");
+    }
+
+    @Test
+    public void testDeadAssignmentSCCP() {
+        testSCCP("DeadAssignment");
+    }
+
+    @Test
+    public void testLoopsSCCP() {
+        testSCCP("Loops");
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+public class LivenessQueryTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/deadcode/";
+
+    /**
+     * Checks that the answers of the queries are the same as the OUT
+     * facts of {@link LiveVariableAnalysis}, for all variables at all
+     * statements. Each query is issued twice to cover the memoized answers.
+     *
+     * @param threshold threshold of the queries, after which the whole
+     *                  method is analyzed
+     */
+    private static void testQueries(String main, int threshold) {
+        for (IR ir : Tests.buildIRs(main, CLASS_PATH,
+                "-a", "livevar=strongly:false")) {
+            DataflowResult<Stmt, SetFact<Var>> expected =
+                    ir.getResult(LiveVariableAnalysis.ID);
+            LivenessQuery query = new LivenessQuery(ir, threshold);
+            for (int i = 0; i < 2; ++i) {
+                for (Stmt stmt : ir) {
+                    for (Var var : ir.getVars()) {
+                        Assert.assertEquals(ir.getMethod() + " " + stmt + " " + var,
+                                expected.getOutFact(stmt).contains(var),
+                                query.isLive(var, stmt));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLoopsOnDemand() {
+        testQueries("Loops", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testDeadAssignmentOnDemand() {
+        testQueries("DeadAssignment", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testUnreachableSwitchBranchOnDemand() {
+        testQueries("UnreachableSwitchBranch", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testLoopsPastThreshold() {
+        testQueries("Loops", 4);
+    }
+
+    @Test
+    public void testDeadAssignmentPastThreshold() {
+        testQueries("DeadAssignment", 4);
+    }
+
+    @Test
+    public void testControlFlowUnreachablePastThreshold() {
+        testQueries("ControlFlowUnreachable", 0);
+    }
+}
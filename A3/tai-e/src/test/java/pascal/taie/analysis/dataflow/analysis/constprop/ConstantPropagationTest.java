@@ -0,0 +1,153 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
+
+import java.util.List;
+
+public class ConstantPropagationTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/";
+
+    private static final String MAIN = "BranchConditions";
+
+    @Test
+    public void testPrunedBranchConditions() {
+        testPrunedBranchConditions("solver", "worklist");
+    }
+
+    @Test
+    public void testPrunedBranchConditionsDense() {
+        testPrunedBranchConditions("dense", true);
+    }
+
+    @Test
+    public void testPrunedBranchConditionsBlock() {
+        testPrunedBranchConditions("solver", "block");
+    }
+
+    /**
+     * Checks that pruning dead variables keeps the values of the live
+     * variables, i.e., the values of the int variables used by each
+     * statement and of the variables live after it are the same as
+     * without pruning. Besides, the operands of the conditions of branches
+     * are kept in their OUT facts, even if the operands are dead after the
+     * branches, so that the conditions evaluate to the same values as
+     * without pruning.
+     */
+    private static void testPrunedBranchConditions(String key, Object value) {
+        ConstantPropagation full = new ConstantPropagation(new AnalysisConfig(
+                ConstantPropagation.ID, "edge-refine", false, key, value));
+        ConstantPropagation pruned = new ConstantPropagation(new AnalysisConfig(
+                ConstantPropagation.ID, "edge-refine", false, key, value,
+                "prune-dead-vars", true));
+        for (IR ir : buildIRs()) {
+            DataflowResult<Stmt, CPFact> expected = full.analyze(ir);
+            DataflowResult<Stmt, CPFact> given = pruned.analyze(ir);
+            assertSameLiveValues(ir, expected, given);
+            assertSameConditions(ir, expected, given);
+        }
+    }
+
+    /**
+     * Checks that {@link ConstantPropagation#reanalyze} prunes dead
+     * variables like {@link ConstantPropagation#analyze}.
+     */
+    @Test
+    public void testReanalyzePruned() {
+        ConstantPropagation pruned = new ConstantPropagation(new AnalysisConfig(
+                ConstantPropagation.ID, "edge-refine", false,
+                "prune-dead-vars", true));
+        for (IR ir : buildIRs()) {
+            DataflowResult<Stmt, CPFact> expected = pruned.analyze(ir);
+            DataflowResult<Stmt, CPFact> given = pruned.reanalyze(
+                    ir, pruned.analyze(ir), ir.getStmts());
+            for (Stmt stmt : ir) {
+                Assert.assertEquals(ir.getMethod() + " " + stmt,
+                        expected.getOutFact(stmt), given.getOutFact(stmt));
+            }
+            assertSameConditions(ir, expected, given);
+        }
+    }
+
+    private static List<IR> buildIRs() {
+        return Tests.buildIRs(MAIN, CLASS_PATH,
+                "-a", "constprop=edge-refine:false");
+    }
+
+    private static void assertSameLiveValues(IR ir,
+            DataflowResult<Stmt, CPFact> expected, DataflowResult<Stmt, CPFact> given) {
+        DataflowResult<Stmt, SetFact<Var>> liveVars = new LiveVariableAnalysis(
+                new AnalysisConfig(LiveVariableAnalysis.ID)).solve(ir);
+        for (Stmt stmt : ir) {
+            String message = ir.getMethod() + " " + stmt;
+            for (RValue use : stmt.getUses()) {
+                if (use instanceof Var var && ConstantPropagation.canHoldInt(var)) {
+                    Assert.assertEquals(message + " IN " + var,
+                            expected.getInFact(stmt).get(var),
+                            given.getInFact(stmt).get(var));
+                }
+            }
+            liveVars.getOutFact(stmt).stream().forEach(var ->
+                    Assert.assertEquals(message + " OUT " + var,
+                            expected.getOutFact(stmt).get(var),
+                            given.getOutFact(stmt).get(var)));
+        }
+    }
+
+    private static void assertSameConditions(IR ir,
+            DataflowResult<Stmt, CPFact> expected, DataflowResult<Stmt, CPFact> given) {
+        CompiledTransfers transfers = CompiledTransfers.of(ir);
+        for (Stmt stmt : ir) {
+            if (stmt instanceof If || stmt instanceof SwitchStmt) {
+                String message = ir.getMethod() + " " + stmt;
+                CPFact expectedOut = expected.getOutFact(stmt);
+                CPFact givenOut = given.getOutFact(stmt);
+                for (RValue use : stmt.getUses()) {
+                    if (use instanceof Var var) {
+                        Assert.assertEquals(message + " " + var,
+                                expectedOut.get(var), givenOut.get(var));
+                    }
+                }
+                Assert.assertEquals(message,
+                        transfers.evaluateCondition(stmt, expectedOut),
+                        transfers.evaluateCondition(stmt, givenOut));
+                Assert.assertFalse(message,
+                        transfers.evaluateCondition(stmt, givenOut).isUndef());
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+public class ConstantQueryTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/";
+
+    /**
+     * Checks that the values given by the queries are the same as the
+     * IN facts of {@link ConstantPropagation}, for all int variables at
+     * all statements. Each query is issued twice to cover the memoized
+     * values.
+     *
+     * @param threshold threshold of the queries, after which the whole
+     *                  method is analyzed
+     */
+    private static void testQueries(String main, int threshold) {
+        for (IR ir : Tests.buildIRs(main, CLASS_PATH,
+                "-a", "constprop=edge-refine:false")) {
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            DataflowResult<Stmt, CPFact> expected = ir.getResult(ConstantPropagation.ID);
+            ConstantQuery query = new ConstantQuery(ir, threshold);
+            for (int i = 0; i < 2; ++i) {
+                for (Stmt stmt : ir) {
+                    for (Var var : ir.getVars()) {
+                        if (ConstantPropagation.canHoldInt(var)) {
+                            Assert.assertEquals(ir.getMethod() + " " + stmt + " " + var,
+                                    getInValue(cfg, expected, stmt, var),
+                                    query.getValue(var, stmt));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of var before stmt given by constant propagation,
+     * i.e., the meet of the values in the OUT facts of its predecessors.
+     */
+    private static Value getInValue(CFG<Stmt> cfg,
+            DataflowResult<Stmt, CPFact> constants, Stmt stmt, Var var) {
+        long value = PackedValue.UNDEF;
+        for (Stmt pred : cfg.getPredsOf(stmt)) {
+            value = PackedValue.meet(value,
+                    PackedValue.encode(constants.getOutFact(pred).get(var)));
+        }
+        return PackedValue.decode(value);
+    }
+
+    @Test
+    public void testSCCPConstantsOnDemand() {
+        testQueries("SCCPConstants", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testBranchConditionsOnDemand() {
+        testQueries("BranchConditions", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSCCPConstantsPastThreshold() {
+        testQueries("SCCPConstants", 4);
+    }
+
+    @Test
+    public void testBranchConditionsPastThreshold() {
+        testQueries("BranchConditions", 0);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.type.PrimitiveType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Compares {@link DenseCPFact} with {@link CPFact} on random operations,
+ * including the operations between the two kinds of facts.
+ */
+public class DenseCPFactTest {
+
+    private static final long SEED = 20221017L;
+
+    /**
+     * Number of variables. The dense facts are created with smaller
+     * capacities, so that they grow during the operations.
+     */
+    private static final int SIZE = 100;
+
+    private static final int ROUNDS = 20_000;
+
+    private final List<Var> vars = IntStream.range(0, SIZE)
+            .mapToObj(i -> new Var(null, "v" + i, PrimitiveType.INT, i))
+            .toList();
+
+    private final List<Value> values = PackedValueTest.sampleValues().subList(0, 6);
+
+    private final Random random = new Random(SEED);
+
+    private final ConstantPropagation cp = new ConstantPropagation(
+            new AnalysisConfig(ConstantPropagation.ID));
+
+    @Test
+    public void testRandomOperations() {
+        DenseCPFact[] facts = new DenseCPFact[4];
+        CPFact[] models = new CPFact[facts.length];
+        for (int i = 0; i < facts.length; ++i) {
+            facts[i] = newDenseFact();
+            models[i] = new CPFact();
+        }
+        for (int round = 0; round < ROUNDS; ++round) {
+            int i = random.nextInt(facts.length);
+            int j = random.nextInt(facts.length);
+            DenseCPFact fact = facts[i];
+            CPFact model = models[i];
+            Var var = randomVar();
+            switch (random.nextInt(10)) {
+                case 0 -> Assert.assertEquals(model.remove(var), fact.remove(var));
+                case 1 -> {
+                    // the model is not changed when i == j, which makes
+                    // the expected change flag false
+                    boolean changed = model.copyFrom(models[j]);
+                    Assert.assertEquals(changed, fact.copyFrom(facts[j]));
+                }
+                case 2 -> {
+                    cp.meetInto(models[j], model);
+                    cp.meetInto(facts[j], fact);
+                }
+                case 3 -> {
+                    // the copies are independent of the originals
+                    facts[i] = fact.copy();
+                    models[i] = model.copy();
+                    fact.update(var, Value.getNAC());
+                }
+                case 4 -> {
+                    if (random.nextInt(10) == 0) {
+                        fact.clear();
+                        model.clear();
+                    }
+                }
+                default -> {
+                    Value value = randomValue();
+                    Assert.assertEquals(model.update(var, value),
+                            fact.update(var, value));
+                }
+            }
+            assertSameContent(models[i], facts[i]);
+        }
+        for (int i = 0; i < facts.length; ++i) {
+            for (int j = 0; j < facts.length; ++j) {
+                Assert.assertEquals(models[i].equals(models[j]),
+                        facts[i].equals(facts[j]));
+            }
+        }
+    }
+
+    @Test
+    public void testMixedCopyFrom() {
+        for (int round = 0; round < 1_000; ++round) {
+            CPFact source = randomFact(new CPFact());
+            DenseCPFact dense = randomFact(newDenseFact());
+            CPFact expected = dense.isEmpty() ? new CPFact() : toCPFact(dense);
+            boolean changed = expected.copyFrom(source);
+            Assert.assertEquals(changed, dense.copyFrom(source));
+            assertSameContent(expected, dense);
+            // copy from a dense fact into a persistent one
+            CPFact target = randomFact(new CPFact());
+            CPFact expectedTarget = target.copy();
+            changed = expectedTarget.copyFrom(toCPFact(dense));
+            Assert.assertEquals(changed, target.copyFrom(dense));
+            Assert.assertEquals(expectedTarget, target);
+        }
+    }
+
+    @Test
+    public void testMixedEquals() {
+        for (int round = 0; round < 1_000; ++round) {
+            DenseCPFact dense = randomFact(newDenseFact());
+            CPFact map = toCPFact(dense);
+            // the two kinds of facts are never equal, in either direction
+            Assert.assertNotEquals(dense, map);
+            Assert.assertNotEquals(map, dense);
+            // dense facts of different capacities are compared by content
+            DenseCPFact other = new DenseCPFact(random.nextInt(SIZE) + 1, vars::get);
+            other.copyFrom(dense);
+            Assert.assertEquals(dense, other);
+            Assert.assertEquals(other, dense);
+            Assert.assertEquals(dense.hashCode(), other.hashCode());
+        }
+    }
+
+    /**
+     * Checks that the dense fact has the same content as the model
+     * in all ways of access.
+     */
+    private void assertSameContent(CPFact model, DenseCPFact fact) {
+        for (Var var : vars) {
+            Assert.assertEquals(model.get(var), fact.get(var));
+        }
+        Assert.assertEquals(model.isEmpty(), fact.isEmpty());
+        Assert.assertEquals(model.keySet(), fact.keySet());
+        Assert.assertEquals(fact.keySet(), model.keySet());
+        Assert.assertEquals(toMap(model), toMap(fact));
+        Map<Var, Value> entries = new HashMap<>();
+        fact.entries().forEach(e -> entries.put(e.getKey(), e.getValue()));
+        Assert.assertEquals(toMap(model), entries);
+        Assert.assertEquals(model.toString(), fact.toString());
+        Assert.assertEquals(model.hashCode(), fact.hashCode());
+        Assert.assertEquals(model, toCPFact(fact));
+    }
+
+    private static Map<Var, Value> toMap(CPFact fact) {
+        Map<Var, Value> map = new HashMap<>();
+        fact.forEach(map::put);
+        return map;
+    }
+
+    private static CPFact toCPFact(CPFact fact) {
+        CPFact result = new CPFact();
+        fact.forEach(result::update);
+        return result;
+    }
+
+    private <F extends CPFact> F randomFact(F fact) {
+        int n = random.nextInt(SIZE);
+        for (int i = 0; i < n; ++i) {
+            fact.update(randomVar(), randomValue());
+        }
+        return fact;
+    }
+
+    private DenseCPFact newDenseFact() {
+        return new DenseCPFact(random.nextInt(SIZE) + 1, vars::get);
+    }
+
+    private Var randomVar() {
+        return vars.get(random.nextInt(SIZE));
+    }
+
+    private Value randomValue() {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.config.AnalysisConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PackedValueTest {
+
+    private static final long SEED = 20221017L;
+
+    /**
+     * @return UNDEF, NAC, and constants including the boundary integers.
+     */
+    static List<Value> sampleValues() {
+        List<Value> values = new ArrayList<>(List.of(
+                Value.getUndef(), Value.getNAC(),
+                Value.makeConstant(0), Value.makeConstant(1),
+                Value.makeConstant(-1), Value.makeConstant(Integer.MAX_VALUE),
+                Value.makeConstant(Integer.MIN_VALUE)));
+        Random random = new Random(SEED);
+        for (int i = 0; i < 20; ++i) {
+            values.add(Value.makeConstant(random.nextInt()));
+        }
+        return values;
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        for (Value value : sampleValues()) {
+            long packed = PackedValue.encode(value);
+            Assert.assertEquals(value, PackedValue.decode(packed));
+            Assert.assertEquals(value.isUndef(), PackedValue.isUndef(packed));
+            Assert.assertEquals(value.isNAC(), PackedValue.isNAC(packed));
+            Assert.assertEquals(value.isConstant(), PackedValue.isConstant(packed));
+            if (value.isConstant()) {
+                Assert.assertEquals(value.getConstant(), PackedValue.getConstant(packed));
+                Assert.assertEquals(packed, PackedValue.makeConstant(value.getConstant()));
+            }
+        }
+        Assert.assertEquals(PackedValue.UNDEF, PackedValue.encode(Value.getUndef()));
+        Assert.assertEquals(PackedValue.NAC, PackedValue.encode(Value.getNAC()));
+    }
+
+    @Test
+    public void testDistinctEncodings() {
+        List<Value> values = sampleValues();
+        for (Value v1 : values) {
+            for (Value v2 : values) {
+                Assert.assertEquals(v1.equals(v2),
+                        PackedValue.encode(v1) == PackedValue.encode(v2));
+            }
+        }
+    }
+
+    @Test
+    public void testMeet() {
+        ConstantPropagation cp = new ConstantPropagation(
+                new AnalysisConfig(ConstantPropagation.ID));
+        List<Value> values = sampleValues();
+        for (Value v1 : values) {
+            for (Value v2 : values) {
+                Value expected = cp.meetValue(v1, v2);
+                long meet = PackedValue.meet(
+                        PackedValue.encode(v1), PackedValue.encode(v2));
+                Assert.assertEquals(v1 + " meet " + v2,
+                        expected, PackedValue.decode(meet));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.List;
+
+public class SCCPTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/";
+
+    private static final String MAIN = "SCCPConstants";
+
+    /**
+     * Runs both {@link ConstantPropagation} and
+     * {@link SparseConditionalConstantPropagation} on the methods of
+     * the test class, and checks that the value of every int variable
+     * at every reachable use is at least as precise as the one given by
+     * constant propagation, and the same if all statements are reachable.
+     */
+    @Test
+    public void testAgainstConstantPropagation() {
+        for (IR ir : buildIRs()) {
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            DataflowResult<Stmt, CPFact> constants =
+                    ir.getResult(ConstantPropagation.ID);
+            SCCPResult sccp = SparseConditionalConstantPropagation.analyze(cfg);
+            boolean allReachable = ir.getStmts()
+                    .stream()
+                    .allMatch(sccp::isReachable);
+            for (Stmt stmt : ir) {
+                if (!sccp.isReachable(stmt)) {
+                    continue;
+                }
+                for (RValue use : stmt.getUses()) {
+                    if (use instanceof Var var &&
+                            ConstantPropagation.canHoldInt(var)) {
+                        Value expected = getInValue(cfg, constants, stmt, var);
+                        Value given = sccp.getValue(stmt, var);
+                        String message = ir.getMethod() + " " + stmt + " " + var;
+                        if (allReachable) {
+                            Assert.assertEquals(message, expected, given);
+                        } else {
+                            Assert.assertTrue(message + ": " + given + " vs " + expected,
+                                    isAsPrecise(given, expected));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLoop() {
+        assertReturnValue("loop", Value.getNAC());
+        assertReturnValue("counter", Value.getNAC());
+        assertReturnValue("nestedLoops", Value.getNAC());
+    }
+
+    @Test
+    public void testSwitch() {
+        assertReturnValue("switchMerge", Value.makeConstant(3));
+        assertReturnValue("constantSwitch", Value.makeConstant(1));
+    }
+
+    @Test
+    public void testPrunedBranch() {
+        assertReturnValue("prunedBranch", Value.makeConstant(2));
+    }
+
+    @Test
+    public void testReassignedParam() {
+        assertReturnValue("reassignedParam", Value.makeConstant(5));
+    }
+
+    private static List<IR> buildIRs() {
+        return Tests.buildIRs(MAIN, CLASS_PATH,
+                "-a", "constprop=edge-refine:false");
+    }
+
+    /**
+     * Asserts the value returned by the method of given name.
+     */
+    private static void assertReturnValue(String methodName, Value expected) {
+        IR ir = buildIRs()
+                .stream()
+                .filter(i -> i.getMethod().getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        SCCPResult sccp = SparseConditionalConstantPropagation.analyze(
+                ir.getResult(CFGBuilder.ID));
+        for (Stmt stmt : ir) {
+            if (stmt instanceof Return ret && ret.getValue() != null &&
+                    sccp.isReachable(stmt)) {
+                Assert.assertEquals(methodName, expected,
+                        sccp.getValue(stmt, ret.getValue()));
+            }
+        }
+    }
+
+    /**
+     * @return the value of var before stmt given by constant propagation,
+     * i.e., the meet of the values in the OUT facts of its predecessors.
+     */
+    private static Value getInValue(CFG<Stmt> cfg,
+            DataflowResult<Stmt, CPFact> constants, Stmt stmt, Var var) {
+        Value value = Value.getUndef();
+        for (Stmt pred : cfg.getPredsOf(stmt)) {
+            value = meet(value, constants.getOutFact(pred).get(var));
+        }
+        return value;
+    }
+
+    private static Value meet(Value v1, Value v2) {
+        if (v1.isUndef()) {
+            return v2;
+        } else if (v2.isUndef()) {
+            return v1;
+        } else if (v1.equals(v2)) {
+            return v1;
+        } else {
+            return Value.getNAC();
+        }
+    }
+
+    /**
+     * @return true if given is at least as precise as expected,
+     * i.e., given is the meet of given and expected.
+     */
+    private static boolean isAsPrecise(Value given, Value expected) {
+        return meet(given, expected).equals(expected);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResultCacheTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/deadcode/";
+
+    private static final String MAIN = "Loops";
+
+    /**
+     * Checks that a new analysis misses the empty cache and solves the
+     * IRs, and that another analysis with the same options then hits the
+     * cache, i.e., loads the same results without visiting any node.
+     */
+    @Test
+    public void testHitAndMiss() throws IOException {
+        Path dir = Files.createTempDirectory("tai-e-dataflow-cache");
+        try {
+            List<IR> irs = buildIRs();
+            LiveVariableAnalysis first = new LiveVariableAnalysis(
+                    newConfig(LiveVariableAnalysis.ID, dir, "strongly", false));
+            List<DataflowResult<Stmt, SetFact<Var>>> expected = new ArrayList<>();
+            irs.forEach(ir -> expected.add(first.analyze(ir)));
+            Assert.assertTrue("empty cache should miss", first.getNodeVisits() > 0);
+
+            LiveVariableAnalysis second = new LiveVariableAnalysis(
+                    newConfig(LiveVariableAnalysis.ID, dir, "strongly", false));
+            for (int i = 0; i < irs.size(); ++i) {
+                Tests.assertSameResult("cached", irs.get(i),
+                        expected.get(i), second.analyze(irs.get(i)));
+            }
+            Assert.assertEquals("cached results should hit", 0, second.getNodeVisits());
+
+            // the results of the analyses with other options are not reused
+            ConstantPropagation constprop = new ConstantPropagation(
+                    newConfig(ConstantPropagation.ID, dir, "edge-refine", false));
+            irs.forEach(constprop::analyze);
+            Assert.assertTrue("other analysis should miss", constprop.getNodeVisits() > 0);
+        } finally {
+            Tests.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testKeyIgnoresCacheOptions() {
+        IR ir = buildIRs().get(0);
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        String key = ResultCache.key(LiveVariableAnalysis.ID, new AnalysisConfig(
+                LiveVariableAnalysis.ID, "strongly", false).getOptions(), ir, cfg);
+        Assert.assertEquals(key, ResultCache.key(LiveVariableAnalysis.ID,
+                new AnalysisConfig(LiveVariableAnalysis.ID, "cache-dir", "a",
+                        "strongly", false, "cache-size", 1).getOptions(), ir, cfg));
+        Assert.assertEquals(key, ResultCache.key(LiveVariableAnalysis.ID,
+                new AnalysisConfig(LiveVariableAnalysis.ID, "strongly", false,
+                        "cache-dir", "b").getOptions(), ir, cfg));
+        Assert.assertNotEquals(key, ResultCache.key(LiveVariableAnalysis.ID,
+                new AnalysisConfig(LiveVariableAnalysis.ID, "strongly", true,
+                        "cache-dir", "a").getOptions(), ir, cfg));
+    }
+
+    @Test
+    public void testConflictingMaxSize() throws IOException {
+        Path dir = Files.createTempDirectory("tai-e-dataflow-cache");
+        try {
+            // opens the cache with the default size
+            new LiveVariableAnalysis(newConfig(LiveVariableAnalysis.ID, dir));
+            new ConstantPropagation(newConfig(ConstantPropagation.ID, dir,
+                    "cache-size", 256));
+            Assert.assertThrows(ConfigException.class, () -> new LiveVariableAnalysis(
+                    newConfig(LiveVariableAnalysis.ID, dir, "cache-size", 128)));
+            long maxSize = 256 * 1024 * 1024;
+            Assert.assertSame(ResultCache.get(dir, maxSize), ResultCache.get(dir, maxSize));
+            Assert.assertThrows(IllegalArgumentException.class,
+                    () -> ResultCache.get(dir, 1024));
+        } finally {
+            Tests.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testInvalidCacheSize() throws IOException {
+        Path dir = Files.createTempDirectory("tai-e-dataflow-cache");
+        try {
+            for (Object size : new Object[]{ 0, -1, "big" }) {
+                Assert.assertThrows(ConfigException.class, () -> new LiveVariableAnalysis(
+                        newConfig(LiveVariableAnalysis.ID, dir, "cache-size", size)));
+            }
+        } finally {
+            Tests.deleteRecursively(dir);
+        }
+    }
+
+    private static List<IR> buildIRs() {
+        return Tests.buildIRs(MAIN, CLASS_PATH, "-a", "livevar=strongly:false");
+    }
+
+    /**
+     * @return the configuration of given analysis caching its results
+     * in given directory, with given options.
+     */
+    private static AnalysisConfig newConfig(String id, Path dir, Object... options) {
+        Object[] allOptions = new Object[options.length + 2];
+        allOptions[0] = "cache-dir";
+        allOptions[1] = dir.toString();
+        System.arraycopy(options, 0, allOptions, 2, options.length);
+        return new AnalysisConfig(id, allOptions);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.fact;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.type.PrimitiveType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the operations of {@link SetFact} and {@link BitSetFact},
+ * including the operations between facts of different representations,
+ * with the ones of {@link HashSet}.
+ */
+public class SetFactTest {
+
+    private static final long SEED = 20221017L;
+
+    /**
+     * Number of variables, which spans several words of bit sets.
+     */
+    private static final int SIZE = 150;
+
+    private static final int ROUNDS = 2000;
+
+    private final List<Var> vars = IntStream.range(0, SIZE)
+            .mapToObj(i -> new Var(null, "v" + i, PrimitiveType.INT, i))
+            .toList();
+
+    private final Random random = new Random(SEED);
+
+    @Test
+    public void testHybridWithHybrid() {
+        testOperations(false, false);
+    }
+
+    @Test
+    public void testBitSetWithBitSet() {
+        testOperations(true, true);
+    }
+
+    @Test
+    public void testHybridWithBitSet() {
+        testOperations(false, true);
+    }
+
+    @Test
+    public void testBitSetWithHybrid() {
+        testOperations(true, false);
+    }
+
+    @Test
+    public void testMixedEquals() {
+        for (int i = 0; i < ROUNDS; ++i) {
+            Set<Var> elems = randomSet();
+            SetFact<Var> hybrid = newFact(false, elems);
+            SetFact<Var> bitSet = newFact(true, elems);
+            Assert.assertEquals(hybrid, bitSet);
+            Assert.assertEquals(bitSet, hybrid);
+            Assert.assertEquals(hybrid.hashCode(), bitSet.hashCode());
+            Assert.assertEquals(elems.hashCode(), bitSet.hashCode());
+            Set<Var> others = randomSet();
+            if (!others.equals(elems)) {
+                SetFact<Var> other = newFact(false, others);
+                Assert.assertNotEquals(other, bitSet);
+                Assert.assertNotEquals(bitSet, other);
+            }
+        }
+    }
+
+    @Test
+    public void testMixedUnionIntoEmpty() {
+        // union of a bit set into an empty hash-based fact, which
+        // happens when a meet takes a fact of another analysis
+        Set<Var> elems = new HashSet<>(vars.subList(SIZE / 3, SIZE));
+        SetFact<Var> target = new SetFact<>();
+        Assert.assertTrue(target.union(newFact(true, elems)));
+        Assert.assertEquals(elems, toSet(target));
+    }
+
+    /**
+     * Performs random operations on the facts of given representations,
+     * and checks the results against {@link HashSet}s.
+     */
+    private void testOperations(boolean bitSetTarget, boolean bitSetOther) {
+        for (int i = 0; i < ROUNDS; ++i) {
+            Set<Var> expected = randomSet();
+            Set<Var> otherElems = randomSet();
+            SetFact<Var> target = newFact(bitSetTarget, expected);
+            SetFact<Var> other = newFact(bitSetOther, otherElems);
+            Var var = vars.get(random.nextInt(SIZE));
+            // whether the change flag returned by the operation is correct
+            boolean changed = switch (random.nextInt(7)) {
+                case 0 -> {
+                    boolean c = target.union(other);
+                    yield c == expected.addAll(otherElems);
+                }
+                case 1 -> {
+                    boolean c = target.intersect(other);
+                    yield c == expected.retainAll(otherElems);
+                }
+                case 2 -> {
+                    target.set(other);
+                    expected.clear();
+                    expected.addAll(otherElems);
+                    yield true;
+                }
+                case 3 -> {
+                    target = target.unionWith(other);
+                    expected.addAll(otherElems);
+                    yield true;
+                }
+                case 4 -> {
+                    target = target.intersectWith(other);
+                    expected.retainAll(otherElems);
+                    yield true;
+                }
+                case 5 -> {
+                    boolean c = target.add(var);
+                    yield c == expected.add(var);
+                }
+                default -> {
+                    boolean c = target.remove(var);
+                    yield c == expected.remove(var);
+                }
+            };
+            Assert.assertTrue("wrong change flag", changed);
+            Assert.assertEquals(expected, toSet(target));
+            Assert.assertEquals(expected.size(), target.size());
+            Assert.assertEquals(expected.isEmpty(), target.isEmpty());
+            Assert.assertEquals(expected.contains(var), target.contains(var));
+            Assert.assertEquals(newFact(bitSetOther, expected), target);
+            Assert.assertEquals(target, newFact(bitSetOther, expected));
+            Assert.assertEquals(expected.hashCode(), target.hashCode());
+            // the other fact is not modified by the operations
+            Assert.assertEquals(otherElems, toSet(other));
+        }
+    }
+
+    private Set<Var> randomSet() {
+        // vary the density, so that some facts are empty or full
+        int density = random.nextInt(5);
+        return vars.stream()
+                .filter(v -> random.nextInt(4) < density)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private SetFact<Var> newFact(boolean bitSet, Set<Var> elems) {
+        SetFact<Var> fact = bitSet ?
+                // smaller capacity than the universe, so that bit sets grow
+                new BitSetFact<>(random.nextInt(SIZE) + 1, vars::get) :
+                new SetFact<>();
+        elems.forEach(fact::add);
+        return fact;
+    }
+
+    private static Set<Var> toSet(SetFact<Var> fact) {
+        return fact.stream().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.analysis.graph.cfg.TestCFG;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the results of {@link Solver#solveIncrementally} with
+ * the results of solving the changed CFGs from scratch.
+ */
+public class IncrementalSolverTest {
+
+    private static final int NODES = 30;
+
+    private static final int FACTS = 8;
+
+    private static final int ROUNDS = 200;
+
+    /**
+     * Builds a CFG whose nodes are numbered from 0 (entry)
+     * to {@link #NODES} - 1 (exit). The nodes form a chain, plus random
+     * forward and backward edges, thus the CFG contains loops.
+     */
+    private static TestCFG<Integer> buildCFG(Random random) {
+        TestCFG<Integer> cfg = new TestCFG<>(0, NODES - 1);
+        for (int i = 0; i + 1 < NODES; ++i) {
+            cfg.addEdge(i, i + 1);
+        }
+        for (int i = 0; i < NODES / 3; ++i) {
+            int source = 1 + random.nextInt(NODES - 2);
+            int target = 1 + random.nextInt(NODES - 2);
+            cfg.addEdge(source, target);
+        }
+        return cfg;
+    }
+
+    private void testIncremental(boolean isForward, String solverKind,
+                                 boolean addNodes) {
+        Random random = new Random(isForward ? 1 : 2);
+        for (int round = 0; round < ROUNDS; ++round) {
+            TestCFG<Integer> cfg = buildCFG(random);
+            GenKill analysis = new GenKill(isForward);
+            for (int node = 1; node < NODES - 1; ++node) {
+                analysis.randomize(node, random);
+            }
+            Solver<Integer, SetFact<Integer>> solver =
+                    Solver.makeSolver(analysis, solverKind);
+            DataflowResult<Integer, SetFact<Integer>> result = solver.solve(cfg);
+            // change the transfer functions of some nodes
+            List<Integer> changed = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                int node = 1 + random.nextInt(NODES - 2);
+                analysis.randomize(node, random);
+                changed.add(node);
+            }
+            if (addNodes) {
+                // insert new nodes, which are given as changed nodes
+                // together with the nodes whose edges changed
+                for (int node = NODES; node < NODES + 3; ++node) {
+                    int pred = random.nextInt(NODES - 1);
+                    int succ = 1 + random.nextInt(NODES - 1);
+                    cfg.addEdge(pred, node);
+                    cfg.addEdge(node, succ);
+                    analysis.randomize(node, random);
+                    changed.add(node);
+                    changed.add(pred);
+                    changed.add(succ);
+                }
+            }
+            solver.solveIncrementally(cfg, result, changed);
+            DataflowResult<Integer, SetFact<Integer>> expected = solver.solve(cfg);
+            for (Integer node : cfg) {
+                String message = "round " + round + ", node " + node;
+                Assert.assertEquals(message + " (IN)",
+                        expected.getInFact(node), result.getInFact(node));
+                Assert.assertEquals(message + " (OUT)",
+                        expected.getOutFact(node), result.getOutFact(node));
+            }
+        }
+    }
+
+    @Test
+    public void testChangedNodesForward() {
+        testIncremental(true, "worklist", false);
+    }
+
+    @Test
+    public void testChangedNodesBackward() {
+        testIncremental(false, "worklist", false);
+    }
+
+    @Test
+    public void testAddedNodesForward() {
+        testIncremental(true, "worklist", true);
+    }
+
+    @Test
+    public void testAddedNodesBackward() {
+        testIncremental(false, "worklist", true);
+    }
+
+    @Test
+    public void testAddedNodesPriority() {
+        testIncremental(true, "priority", true);
+    }
+
+    @Test
+    public void testUnsupportedSolvers() {
+        for (String kind : List.of("block", "wto")) {
+            TestCFG<Integer> cfg = buildCFG(new Random(0));
+            GenKill analysis = new GenKill(true);
+            Solver<Integer, SetFact<Integer>> solver =
+                    Solver.makeSolver(analysis, kind);
+            DataflowResult<Integer, SetFact<Integer>> result = solver.solve(cfg);
+            try {
+                solver.solveIncrementally(cfg, result, List.of(1));
+                Assert.fail(kind + " solver should reject incremental solving");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * May analysis with a gen and a kill set of integers at each node,
+     * which can be changed between the solving.
+     */
+    private static class GenKill
+            implements DataflowAnalysis<Integer, SetFact<Integer>> {
+
+        private final boolean isForward;
+
+        private final Map<Integer, Set<Integer>> gens = Maps.newMap();
+
+        private final Map<Integer, Set<Integer>> kills = Maps.newMap();
+
+        private GenKill(boolean isForward) {
+            this.isForward = isForward;
+        }
+
+        private void randomize(int node, Random random) {
+            gens.put(node, randomSet(random));
+            kills.put(node, randomSet(random));
+        }
+
+        private static Set<Integer> randomSet(Random random) {
+            Set<Integer> set = new HashSet<>();
+            for (int i = 0; i < FACTS; ++i) {
+                if (random.nextInt(4) == 0) {
+                    set.add(i);
+                }
+            }
+            return set;
+        }
+
+        @Override
+        public boolean isForward() {
+            return isForward;
+        }
+
+        @Override
+        public SetFact<Integer> newBoundaryFact(CFG<Integer> cfg) {
+            return newInitialFact();
+        }
+
+        @Override
+        public SetFact<Integer> newInitialFact() {
+            return new SetFact<>();
+        }
+
+        @Override
+        public void meetInto(SetFact<Integer> fact, SetFact<Integer> target) {
+            target.union(fact);
+        }
+
+        @Override
+        public boolean transferNode(Integer node,
+                                    SetFact<Integer> in, SetFact<Integer> out) {
+            SetFact<Integer> newOut = in.copy();
+            kills.getOrDefault(node, Set.of()).forEach(newOut::remove);
+            gens.getOrDefault(node, Set.of()).forEach(newOut::add);
+            if (newOut.equals(out)) {
+                return false;
+            }
+            out.set(newOut);
+            return true;
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Integer> edge) {
+            return false;
+        }
+
+        @Override
+        public SetFact<Integer> transferEdge(Edge<Integer> edge,
+                                             SetFact<Integer> fact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.defuse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+public class DefUseChainsTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/deadcode/";
+
+    /**
+     * Checks the chains of all methods of given class against the
+     * reaching definitions computed by searching the paths of the CFG.
+     */
+    void testChains(String main) {
+        List<IR> irs = Tests.buildIRs(main, CLASS_PATH, "-a", CFGBuilder.ID);
+        for (IR ir : irs) {
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            DefUseChains chains = DefUseChains.of(ir);
+            for (Stmt stmt : ir) {
+                for (RValue use : stmt.getUses()) {
+                    if (use instanceof Var var) {
+                        Set<Stmt> expected = computeReachingDefs(ir, cfg, stmt, var);
+                        Assert.assertEquals(stmt + " " + var,
+                                expected, new HashSet<>(chains.getDefs(stmt, var)));
+                        for (Stmt def : expected) {
+                            Assert.assertTrue(def + " -> " + stmt,
+                                    chains.getUses(def).contains(stmt));
+                        }
+                    }
+                }
+            }
+            // every def-use chain is also a use-def chain
+            for (Stmt def : cfg) {
+                for (Stmt use : chains.getUses(def)) {
+                    Assert.assertTrue(def + " -> " + use, use.getUses()
+                            .stream()
+                            .anyMatch(v -> v instanceof Var var &&
+                                    chains.getDefs(use, var).contains(def)));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the definitions of var which reach stmt, i.e., from which
+     * there is a path to stmt without passing other definitions of var.
+     */
+    private static Set<Stmt> computeReachingDefs(
+            IR ir, CFG<Stmt> cfg, Stmt stmt, Var var) {
+        Set<Stmt> defs = new HashSet<>();
+        if (ir.getParams().contains(var) || var.equals(ir.getThis())) {
+            defs.add(cfg.getEntry());
+        }
+        for (Stmt s : ir) {
+            if (s.getDef().filter(var::equals).isPresent()) {
+                defs.add(s);
+            }
+        }
+        Set<Stmt> reachingDefs = new HashSet<>();
+        for (Stmt def : defs) {
+            Set<Stmt> visited = new HashSet<>();
+            Queue<Stmt> queue = new ArrayDeque<>(cfg.getSuccsOf(def));
+            while (!queue.isEmpty()) {
+                Stmt s = queue.poll();
+                if (!visited.add(s)) {
+                    continue;
+                }
+                if (s == stmt) {
+                    reachingDefs.add(def);
+                    break;
+                }
+                if (!defs.contains(s)) {
+                    queue.addAll(cfg.getSuccsOf(s));
+                }
+            }
+        }
+        return reachingDefs;
+    }
+
+    @Test
+    public void testLoops() {
+        testChains("Loops");
+    }
+
+    @Test
+    public void testDeadAssignment() {
+        testChains("DeadAssignment");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranch() {
+        testChains("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testControlFlowUnreachable() {
+        testChains("ControlFlowUnreachable");
+    }
+}
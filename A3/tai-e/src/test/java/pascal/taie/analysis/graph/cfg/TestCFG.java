@@ -0,0 +1,135 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.Views;
+
+import java.util.Set;
+
+/**
+ * CFG over arbitrary nodes without IR, whose edges are all fall-through
+ * edges, for testing the data-flow solvers on hand-built graphs.
+ */
+public class TestCFG<N> implements CFG<N> {
+
+    private final N entry;
+
+    private final N exit;
+
+    private final Set<N> nodes = Sets.newHybridOrderedSet();
+
+    private final MultiMap<N, Edge<N>> inEdges = Maps.newMultiMap();
+
+    private final MultiMap<N, Edge<N>> outEdges = Maps.newMultiMap();
+
+    public TestCFG(N entry, N exit) {
+        this.entry = entry;
+        this.exit = exit;
+        addNode(entry);
+        addNode(exit);
+    }
+
+    public void addNode(N node) {
+        nodes.add(node);
+    }
+
+    public void addEdge(N source, N target) {
+        if (!hasEdge(source, target)) {
+            addNode(source);
+            addNode(target);
+            Edge<N> edge = new Edge<>(Edge.Kind.FALL_THROUGH, source, target);
+            outEdges.put(source, edge);
+            inEdges.put(target, edge);
+        }
+    }
+
+    @Override
+    public IR getIR() {
+        return null;
+    }
+
+    @Override
+    public JMethod getMethod() {
+        return null;
+    }
+
+    @Override
+    public N getEntry() {
+        return entry;
+    }
+
+    @Override
+    public N getExit() {
+        return exit;
+    }
+
+    @Override
+    public boolean isEntry(N node) {
+        return node.equals(entry);
+    }
+
+    @Override
+    public boolean isExit(N node) {
+        return node.equals(exit);
+    }
+
+    @Override
+    public Set<Edge<N>> getInEdgesOf(N node) {
+        return inEdges.get(node);
+    }
+
+    @Override
+    public Set<Edge<N>> getOutEdgesOf(N node) {
+        return outEdges.get(node);
+    }
+
+    @Override
+    public boolean hasNode(N node) {
+        return nodes.contains(node);
+    }
+
+    @Override
+    public boolean hasEdge(N source, N target) {
+        return getSuccsOf(source).contains(target);
+    }
+
+    @Override
+    public Set<N> getPredsOf(N node) {
+        return Views.toMappedSet(getInEdgesOf(node), Edge::getSource);
+    }
+
+    @Override
+    public Set<N> getSuccsOf(N node) {
+        return Views.toMappedSet(getOutEdgesOf(node), Edge::getTarget);
+    }
+
+    @Override
+    public Set<N> getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.util.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares {@link PersistentMap} with {@link HashMap} on random operations,
+ * including hash collisions, removals, copies and {@code putAll}.
+ */
+public class PersistentMapTest {
+
+    private static final long SEED = 20221017L;
+
+    private final Random random = new Random(SEED);
+
+    /**
+     * Keys spread over the whole hash space, so that the tries have
+     * multiple levels.
+     */
+    @Test
+    public void testRandomKeys() {
+        testOperations(5_000, id -> random.nextInt(), 50_000);
+    }
+
+    /**
+     * Keys whose hash codes collide on all bits, so that most keys
+     * end up in collision nodes.
+     */
+    @Test
+    public void testFullCollisions() {
+        testOperations(200, id -> id % 7, 20_000);
+    }
+
+    /**
+     * Keys whose hash codes share the lower bits, so that the tries
+     * are deep and narrow, with full collisions at the bottom.
+     */
+    @Test
+    public void testPartialCollisions() {
+        testOperations(2_000, id -> (id % 64) << 20 | 0x1f, 30_000);
+    }
+
+    @Test
+    public void testRemoveAll() {
+        List<Key> keys = newKeys(5_000, id -> id % 1000 == 0 ? 42 : random.nextInt());
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        keys.forEach(k -> map.put(k, k.id()));
+        PersistentMap<Key, Integer> full = map.copy();
+        for (int i = keys.size() - 1; i >= 0; --i) {
+            Assert.assertEquals(keys.get(i).id(), (int) map.remove(keys.get(i)));
+            Assert.assertNull(map.remove(keys.get(i)));
+        }
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(new PersistentMap<Key, Integer>(), map);
+        // the copy is not affected by the removals
+        Assert.assertEquals(keys.size(), full.size());
+        keys.forEach(k -> Assert.assertEquals(k.id(), (int) full.get(k)));
+    }
+
+    /**
+     * Checks that the same mappings give equal maps (which are compared
+     * node by node) regardless of the order of insertions and removals.
+     */
+    @Test
+    public void testCanonicalForm() {
+        for (int round = 0; round < 50; ++round) {
+            List<Key> keys = newKeys(500, id -> random.nextInt(8) == 0 ?
+                    id % 5 : random.nextInt());
+            PersistentMap<Key, Integer> inOrder = new PersistentMap<>();
+            keys.forEach(k -> inOrder.put(k, k.id()));
+            // inserts the keys in another order, together with keys
+            // which are removed later
+            List<Key> shuffled = new ArrayList<>(keys);
+            Collections.shuffle(shuffled, random);
+            List<Key> extra = newKeys(keys.size(), 300, id -> random.nextInt(8) == 0 ?
+                    id % 5 : random.nextInt());
+            PersistentMap<Key, Integer> shuffledMap = new PersistentMap<>();
+            for (int i = 0; i < shuffled.size(); ++i) {
+                shuffledMap.put(shuffled.get(i), -1);
+                if (i < extra.size()) {
+                    shuffledMap.put(extra.get(i), extra.get(i).id());
+                }
+            }
+            extra.forEach(shuffledMap::remove);
+            shuffled.forEach(k -> shuffledMap.put(k, k.id()));
+            Assert.assertEquals(inOrder, shuffledMap);
+            Assert.assertEquals(shuffledMap, inOrder);
+            Assert.assertEquals(inOrder.hashCode(), shuffledMap.hashCode());
+            // a different value makes the maps different
+            Key key = keys.get(random.nextInt(keys.size()));
+            shuffledMap.put(key, -1);
+            Assert.assertNotEquals(inOrder, shuffledMap);
+            Assert.assertNotEquals(shuffledMap, inOrder);
+        }
+    }
+
+    /**
+     * Checks putAll between maps which derive from the same map, in which
+     * the unchanged subtrees are shared and skipped.
+     */
+    @Test
+    public void testPutAllShared() {
+        for (int round = 0; round < 50; ++round) {
+            List<Key> keys = newKeys(2_000, id -> random.nextInt(16) == 0 ?
+                    id % 3 : random.nextInt());
+            PersistentMap<Key, Integer> base = new PersistentMap<>();
+            Map<Key, Integer> baseModel = new HashMap<>();
+            for (Key key : keys.subList(0, 1_000)) {
+                base.put(key, key.id());
+                baseModel.put(key, key.id());
+            }
+            PersistentMap<Key, Integer> map1 = base.copy();
+            PersistentMap<Key, Integer> map2 = base.copy();
+            Map<Key, Integer> model1 = new HashMap<>(baseModel);
+            Map<Key, Integer> model2 = new HashMap<>(baseModel);
+            for (int i = 0; i < 100; ++i) {
+                randomUpdate(keys, map1, model1);
+                randomUpdate(keys, map2, model2);
+            }
+            Map<Key, Integer> expected = new HashMap<>(model1);
+            expected.putAll(model2);
+            boolean changed = map1.putAll(map2);
+            Assert.assertEquals(!expected.equals(model1), changed);
+            assertSame(expected, map1);
+            assertSame(model2, map2);
+            assertSame(baseModel, base);
+            // putting all of a subset changes nothing
+            Assert.assertFalse(map1.putAll(map2));
+            Assert.assertFalse(map1.putAll(map1.copy()));
+            Assert.assertFalse(map1.putAll(new PersistentMap<>()));
+        }
+    }
+
+    @Test
+    public void testNulls() {
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        Assert.assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        Assert.assertThrows(NullPointerException.class, () -> map.put(new Key(0, 0), null));
+        Assert.assertThrows(NullPointerException.class, () -> map.get(null));
+        Assert.assertNull(map.get(new Key(0, 0)));
+        Assert.assertEquals(1, (int) map.getOrDefault(new Key(0, 0), 1));
+    }
+
+    /**
+     * Performs random operations on several maps, which are copies of
+     * each other, and checks them against {@link HashMap}s.
+     */
+    private void testOperations(int nKeys, Hasher hasher, int rounds) {
+        List<Key> keys = newKeys(nKeys, hasher);
+        List<PersistentMap<Key, Integer>> maps = new ArrayList<>();
+        List<Map<Key, Integer>> models = new ArrayList<>();
+        maps.add(new PersistentMap<>());
+        models.add(new HashMap<>());
+        for (int round = 0; round < rounds; ++round) {
+            int i = random.nextInt(maps.size());
+            PersistentMap<Key, Integer> map = maps.get(i);
+            Map<Key, Integer> model = models.get(i);
+            int op = random.nextInt(100);
+            if (op < 2 && maps.size() < 8) {
+                maps.add(map.copy());
+                models.add(new HashMap<>(model));
+            } else if (op < 4) {
+                int j = random.nextInt(maps.size());
+                boolean changed = models.get(j).entrySet().stream().anyMatch(e ->
+                        !e.getValue().equals(model.get(e.getKey())));
+                Assert.assertEquals(changed, map.putAll(maps.get(j)));
+                model.putAll(models.get(j));
+            } else if (op < 5) {
+                int j = random.nextInt(maps.size());
+                map.set(maps.get(j));
+                if (j != i) {
+                    model.clear();
+                    model.putAll(models.get(j));
+                }
+            } else if (op < 6 && random.nextInt(10) == 0) {
+                map.clear();
+                model.clear();
+            } else {
+                randomUpdate(keys, map, model);
+            }
+            Key key = keys.get(random.nextInt(keys.size()));
+            Assert.assertEquals(model.get(key), map.get(key));
+            Assert.assertEquals(model.containsKey(key), map.containsKey(key));
+            Assert.assertEquals(model.size(), map.size());
+            if (round % 10_000 == 0) {
+                for (int j = 0; j < maps.size(); ++j) {
+                    assertSame(models.get(j), maps.get(j));
+                }
+            }
+        }
+        for (int i = 0; i < maps.size(); ++i) {
+            assertSame(models.get(i), maps.get(i));
+            for (int j = 0; j < maps.size(); ++j) {
+                Assert.assertEquals(models.get(i).equals(models.get(j)),
+                        maps.get(i).equals(maps.get(j)));
+            }
+        }
+    }
+
+    private void randomUpdate(List<Key> keys,
+                              PersistentMap<Key, Integer> map,
+                              Map<Key, Integer> model) {
+        Key key = keys.get(random.nextInt(keys.size()));
+        if (random.nextInt(3) == 0) {
+            Assert.assertEquals(model.remove(key), map.remove(key));
+        } else {
+            Integer value = random.nextInt(4);
+            Assert.assertEquals(model.put(key, value), map.put(key, value));
+        }
+    }
+
+    /**
+     * Checks that given map has the same content as the expected one
+     * in all ways of access.
+     */
+    private static void assertSame(Map<Key, Integer> expected,
+                                   PersistentMap<Key, Integer> map) {
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(map, expected);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        expected.forEach((k, v) -> Assert.assertEquals(v, map.get(k)));
+        Map<Key, Integer> iterated = new HashMap<>();
+        for (Map.Entry<Key, Integer> e : map.entrySet()) {
+            Assert.assertNull("duplicate key " + e.getKey(),
+                    iterated.put(e.getKey(), e.getValue()));
+        }
+        Assert.assertEquals(expected, iterated);
+        Map<Key, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        Assert.assertEquals(expected, visited);
+    }
+
+    private List<Key> newKeys(int size, Hasher hasher) {
+        return newKeys(0, size, hasher);
+    }
+
+    private static List<Key> newKeys(int from, int size, Hasher hasher) {
+        List<Key> keys = new ArrayList<>(size);
+        for (int id = from; id < from + size; ++id) {
+            keys.add(new Key(id, hasher.hash(id)));
+        }
+        return keys;
+    }
+
+    private interface Hasher {
+        int hash(int id);
+    }
+
+    /**
+     * Key with given hash code, so that the tests can control collisions.
+     */
+    private record Key(int id, int hash) {
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
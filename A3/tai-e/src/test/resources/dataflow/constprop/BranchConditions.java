@@ -0,0 +1,37 @@
+class BranchConditions {
+
+    int deadAfterIf(int p) {
+        int x = 10;
+        int y = 1;
+        if (x > y) {
+            return p;
+        }
+        return 0;
+    }
+
+    int deadAfterSwitch(int p) {
+        int k = 2;
+        switch (k) {
+            case 1:
+                return 1;
+            case 2:
+                return p;
+            default:
+                return 3;
+        }
+    }
+
+    int deadAfterLoop(int n) {
+        int sum = 0;
+        int limit = 3;
+        for (int i = 0; i < limit; ++i) {
+            sum = sum + n;
+        }
+        int a = 4;
+        int b = 4;
+        if (a == b) {
+            return sum;
+        }
+        return n;
+    }
+}
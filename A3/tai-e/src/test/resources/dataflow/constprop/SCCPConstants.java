@@ -0,0 +1,81 @@
+class SCCPConstants {
+
+    int loop(int n) {
+        int x = 1;
+        int y = 2;
+        int sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum = sum + x;
+            x = y - 1;
+            y = 2;
+        }
+        return sum + x;
+    }
+
+    int counter(int n) {
+        int a = 0;
+        while (a < n) {
+            a = a + 1;
+        }
+        return a;
+    }
+
+    int nestedLoops(int n) {
+        int c = 3;
+        int d = 0;
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < i; ++j) {
+                d = c * 2;
+            }
+            c = 3;
+        }
+        return c + d;
+    }
+
+    int switchMerge(int k) {
+        int r;
+        switch (k) {
+            case 1:
+                r = 3;
+                break;
+            case 2:
+                r = 3;
+                break;
+            default:
+                r = 3;
+        }
+        return r;
+    }
+
+    int constantSwitch() {
+        int s = 10;
+        int r;
+        switch (s - 7) {
+            case 3:
+                r = 1;
+                break;
+            case 4:
+                r = 2;
+                break;
+            default:
+                r = 0;
+        }
+        return r;
+    }
+
+    int prunedBranch() {
+        int x = 1;
+        int y;
+        if (x > 0) {
+            y = 2;
+        } else {
+            y = 3;
+        }
+        return y;
+    }
+
+    int reassignedParam(int p) {
+        p = 5;
+        return p;
+    }
+}
@@ -22,6 +22,8 @@
 
 package pascal.taie.analysis.graph.callgraph;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
 import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
@@ -29,47 +31,194 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementation of the CHA algorithm.
+ * <p>
+ * The results of {@link #dispatch(JClass, Subsignature)} and
+ * {@link #resolve(Invoke)} are memoized, as many call sites share the same
+ * declared receiver type and subsignature, and many classes inherit
+ * the same methods. The caches are concurrent maps, so that they can be
+ * read by multiple threads.
  */
 class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
+    private static final Logger logger = LogManager.getLogger(CHABuilder.class);
+
     private ClassHierarchy hierarchy;
 
+    /**
+     * Cache of dispatch results. An empty {@link Optional} represents
+     * that no satisfying method can be found.
+     */
+    private final ConcurrentMap<DispatchKey, Optional<JMethod>> dispatchCache =
+            Maps.newConcurrentMap();
+
+    /**
+     * Cache of resolution results of call sites.
+     */
+    private final ConcurrentMap<ResolutionKey, Set<JMethod>> resolutionCache =
+            Maps.newConcurrentMap();
+
+    private final LongAdder dispatchHits = new LongAdder();
+
+    private final LongAdder dispatchMisses = new LongAdder();
+
+    private final LongAdder resolutionHits = new LongAdder();
+
+    private final LongAdder resolutionMisses = new LongAdder();
+
     @Override
     public CallGraph<Invoke, JMethod> build() {
         hierarchy = World.get().getClassHierarchy();
-        return buildCallGraph(World.get().getMainMethod());
+        CallGraph<Invoke, JMethod> callGraph =
+                buildCallGraph(World.get().getMainMethod());
+        logger.info("CHA dispatch cache: {} hits, {} misses",
+                getDispatchHits(), getDispatchMisses());
+        logger.info("CHA resolution cache: {} hits, {} misses",
+                getResolutionHits(), getResolutionMisses());
+        return callGraph;
     }
 
-    private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
+    CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
         DefaultCallGraph callGraph = new DefaultCallGraph();
         callGraph.addEntryMethod(entry);
-        // TODO - finish me
+        Queue<JMethod> workList = new ArrayDeque<>();
+        workList.add(entry);
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            if (callGraph.addReachableMethod(method)) {
+                callGraph.callSitesIn(method).forEach(callSite -> {
+                    CallKind kind = CallGraphs.getCallKind(callSite);
+                    for (JMethod callee : resolve(callSite)) {
+                        callGraph.addEdge(new Edge<>(kind, callSite, callee));
+                        workList.add(callee);
+                    }
+                });
+            }
+        }
         return callGraph;
     }
 
     /**
      * Resolves call targets (callees) of a call site via CHA.
+     * This method can be called by multiple threads.
      */
-    private Set<JMethod> resolve(Invoke callSite) {
-        // TODO - finish me
-        return null;
+    Set<JMethod> resolve(Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        ResolutionKey key = new ResolutionKey(methodRef.getDeclaringClass(),
+                methodRef.getSubsignature(), CallGraphs.getCallKind(callSite));
+        Set<JMethod> callees = resolutionCache.get(key);
+        if (callees != null) {
+            resolutionHits.increment();
+            return callees;
+        }
+        resolutionMisses.increment();
+        callees = Collections.unmodifiableSet(doResolve(key));
+        Set<JMethod> prev = resolutionCache.putIfAbsent(key, callees);
+        return prev != null ? prev : callees;
+    }
+
+    private Set<JMethod> doResolve(ResolutionKey key) {
+        Set<JMethod> callees = Sets.newHybridOrderedSet();
+        JClass declaringClass = key.declaringClass();
+        Subsignature subsignature = key.subsignature();
+        switch (key.kind()) {
+            case STATIC, SPECIAL -> {
+                JMethod callee = dispatch(declaringClass, subsignature);
+                if (callee != null) {
+                    callees.add(callee);
+                }
+            }
+            case VIRTUAL, INTERFACE -> {
+                for (JClass jclass : hierarchy.getAllSubclassesOf(declaringClass)) {
+                    JMethod callee = dispatch(jclass, subsignature);
+                    if (callee != null) {
+                        callees.add(callee);
+                    }
+                }
+            }
+            default -> {
+                // other kinds of calls (i.e., invokedynamic) are not handled
+            }
+        }
+        return callees;
     }
 
     /**
      * Looks up the target method based on given class and method subsignature.
      *
+     * This method can be called by multiple threads, and is shared with
+     * {@link RTABuilder}.
+     *
      * @return the dispatched target method, or null if no satisfying method
      * can be found.
      */
-    private JMethod dispatch(JClass jclass, Subsignature subsignature) {
-        // TODO - finish me
-        return null;
+    JMethod dispatch(JClass jclass, Subsignature subsignature) {
+        if (jclass == null) {
+            return null;
+        }
+        DispatchKey key = new DispatchKey(jclass, subsignature);
+        Optional<JMethod> result = dispatchCache.get(key);
+        if (result != null) {
+            dispatchHits.increment();
+            return result.orElse(null);
+        }
+        dispatchMisses.increment();
+        JMethod method = jclass.getDeclaredMethod(subsignature);
+        if (method == null || method.isAbstract()) {
+            // the results of superclasses are cached as well, so that
+            // other subclasses of them stop walking early
+            method = dispatch(jclass.getSuperClass(), subsignature);
+        }
+        dispatchCache.putIfAbsent(key, Optional.ofNullable(method));
+        return method;
+    }
+
+    /**
+     * @return the number of dispatches answered by the cache.
+     */
+    long getDispatchHits() {
+        return dispatchHits.sum();
+    }
+
+    /**
+     * @return the number of dispatches computed by walking
+     * the superclass chain.
+     */
+    long getDispatchMisses() {
+        return dispatchMisses.sum();
+    }
+
+    /**
+     * @return the number of call site resolutions answered by the cache.
+     */
+    long getResolutionHits() {
+        return resolutionHits.sum();
+    }
+
+    /**
+     * @return the number of call site resolutions computed by
+     * traversing the class hierarchy.
+     */
+    long getResolutionMisses() {
+        return resolutionMisses.sum();
+    }
+
+    private record DispatchKey(JClass jclass, Subsignature subsignature) {
+    }
+
+    private record ResolutionKey(JClass declaringClass,
+                                 Subsignature subsignature, CallKind kind) {
     }
 }
@@ -48,16 +48,43 @@ public class CallGraphBuilder extends ProgramAnalysis {
 
     private final String algorithm;
 
+    /**
+     * Number of threads used to build call graph.
+     */
+    private final int parallelism;
+
     public CallGraphBuilder(AnalysisConfig config) {
         super(config);
         algorithm = config.getOptions().getString("algorithm");
+        parallelism = getParallelism();
+    }
+
+    /**
+     * @return the number of threads used to build call graph,
+     * given by option {@code parallelism}, which is 1 by default.
+     * @throws ConfigException if the option is not a positive integer
+     */
+    private int getParallelism() {
+        Object value = getOptions().get("parallelism");
+        if (value == null) {
+            return 1;
+        } else if (value instanceof Integer && (int) value > 0) {
+            return getOptions().getInt("parallelism");
+        } else {
+            throw new ConfigException(String.format(
+                    "Invalid value of option parallelism of %s: %s," +
+                            " expected a positive integer", getId(), value));
+        }
     }
 
     @Override
     public CallGraph<Invoke, JMethod> analyze() {
         CGBuilder<Invoke, JMethod> builder;
         if (algorithm.equals("cha")) {
-            builder = new CHABuilder();
+            builder = parallelism > 1 ?
+                    new ParallelCHABuilder(parallelism) : new CHABuilder();
+        } else if (algorithm.equals("rta")) {
+            builder = new RTABuilder();
         } else {
             throw new ConfigException("Unknown call graph building algorithm: " + algorithm);
         }
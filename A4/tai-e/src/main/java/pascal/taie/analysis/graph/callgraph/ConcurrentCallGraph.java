@@ -0,0 +1,62 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+/**
+ * Thread-safe variant of {@link DefaultCallGraph}, which can be modified
+ * by multiple threads concurrently.
+ * <p>
+ * The queries are not synchronized, thus they should be made after
+ * all modifications have been finished.
+ */
+public class ConcurrentCallGraph extends DefaultCallGraph {
+
+    @Override
+    public synchronized void addEntryMethod(JMethod entryMethod) {
+        super.addEntryMethod(entryMethod);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The IR of the method is built (if it has not been built) before
+     * acquiring the lock, so that IRs are built in parallel.
+     */
+    @Override
+    public boolean addReachableMethod(JMethod method) {
+        if (!method.isAbstract()) {
+            method.getIR();
+        }
+        synchronized (this) {
+            return super.addReachableMethod(method);
+        }
+    }
+
+    @Override
+    public synchronized boolean addEdge(Edge<Invoke, JMethod> edge) {
+        return super.addEdge(edge);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Implementation of the CHA algorithm which processes reachable methods
+ * in parallel.
+ * <p>
+ * The methods are processed round by round: each method reached in
+ * the previous round is a task on a dedicated fork-join pool, which
+ * resolves the call sites in the method and adds the call edges to a
+ * {@link ConcurrentCallGraph}. The callees are claimed through a
+ * concurrent set of reached methods, so that each method is processed
+ * by exactly one task, and the claimed methods are processed in the
+ * next round. As CHA resolves each call site independently of the
+ * other ones, the resulting call graph is the same as the one built by
+ * {@link CHABuilder}, regardless of the number of threads.
+ */
+class ParallelCHABuilder extends CHABuilder {
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism number of threads used to build call graph
+     */
+    ParallelCHABuilder(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive, given: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
+        ConcurrentCallGraph callGraph = new ConcurrentCallGraph();
+        callGraph.addEntryMethod(entry);
+        Set<JMethod> reached = Sets.newConcurrentSet();
+        reached.add(entry);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<JMethod> methods = List.of(entry);
+            while (!methods.isEmpty()) {
+                List<ForkJoinTask<List<JMethod>>> tasks = methods.stream()
+                        .map(method -> pool.submit(() ->
+                                process(method, callGraph, reached)))
+                        .toList();
+                // join() rethrows the exception (if any) thrown by the task
+                methods = tasks.stream()
+                        .flatMap(task -> task.join().stream())
+                        .toList();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return callGraph;
+    }
+
+    /**
+     * Adds a reachable method to call graph, and resolves the call sites
+     * in the method.
+     *
+     * @return the callees which are claimed by this call.
+     */
+    private List<JMethod> process(JMethod method, ConcurrentCallGraph callGraph,
+                                  Set<JMethod> reached) {
+        List<JMethod> claimed = new ArrayList<>();
+        if (callGraph.addReachableMethod(method) && !method.isAbstract()) {
+            method.getIR().forEach(stmt -> {
+                if (stmt instanceof Invoke callSite) {
+                    CallKind kind = CallGraphs.getCallKind(callSite);
+                    for (JMethod callee : resolve(callSite)) {
+                        callGraph.addEdge(new Edge<>(kind, callSite, callee));
+                        if (reached.add(callee)) {
+                            claimed.add(callee);
+                        }
+                    }
+                }
+            });
+        }
+        return claimed;
+    }
+}
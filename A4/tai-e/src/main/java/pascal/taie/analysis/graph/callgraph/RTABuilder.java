@@ -0,0 +1,194 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.ir.exp.NewInstance;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Implementation of Rapid Type Analysis (RTA).
+ * <p>
+ * RTA refines CHA by the classes instantiated in reachable methods:
+ * a virtual call is resolved only to the methods dispatched on the
+ * instantiated subclasses of the declaring class of the callee.
+ * Since a class may be instantiated after a call site is reached,
+ * the virtual call sites are kept, and resolved again on each newly
+ * instantiated class.
+ */
+class RTABuilder implements CGBuilder<Invoke, JMethod> {
+
+    private static final Logger logger = LogManager.getLogger(RTABuilder.class);
+
+    private ClassHierarchy hierarchy;
+
+    private DefaultCallGraph callGraph;
+
+    private Queue<JMethod> workList;
+
+    /**
+     * Classes instantiated in reachable methods.
+     */
+    private Set<JClass> instantiatedClasses;
+
+    /**
+     * Map from declaring class of callee to the subsignatures of callees
+     * and the reachable virtual call sites on them.
+     */
+    private Map<JClass, MultiMap<Subsignature, Invoke>> virtualCallSites;
+
+    /**
+     * Provides the memoized dispatch of CHA, as RTA dispatches on
+     * the same classes and subsignatures.
+     */
+    private final CHABuilder cha = new CHABuilder();
+
+    @Override
+    public CallGraph<Invoke, JMethod> build() {
+        hierarchy = World.get().getClassHierarchy();
+        long start = System.currentTimeMillis();
+        CallGraph<Invoke, JMethod> callGraph =
+                buildCallGraph(World.get().getMainMethod());
+        logger.info("RTA call graph: {} reachable methods, {} edges," +
+                        " {} instantiated classes, built in {} ms",
+                callGraph.getNumberOfMethods(), callGraph.getNumberOfEdges(),
+                instantiatedClasses.size(), System.currentTimeMillis() - start);
+        return callGraph;
+    }
+
+    private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
+        callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(entry);
+        workList = new ArrayDeque<>();
+        instantiatedClasses = Sets.newSet();
+        virtualCallSites = Maps.newMap();
+        workList.add(entry);
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            if (callGraph.addReachableMethod(method) && !method.isAbstract()) {
+                method.getIR().forEach(stmt -> {
+                    if (stmt instanceof New newStmt &&
+                            newStmt.getRValue() instanceof NewInstance newInstance) {
+                        JClass jclass = newInstance.getType().getJClass();
+                        if (jclass != null) {
+                            processNewClass(jclass);
+                        }
+                    }
+                });
+                callGraph.callSitesIn(method).forEach(this::processCallSite);
+            }
+        }
+        return callGraph;
+    }
+
+    /**
+     * Resolves the reachable virtual call sites on the supertypes
+     * of a newly instantiated class. The supertypes (i.e., the class
+     * itself, its superclasses and all their superinterfaces) are
+     * walked from the class and looked up in {@link #virtualCallSites},
+     * so the cost does not grow with the number of declaring classes
+     * of the call sites.
+     */
+    private void processNewClass(JClass jclass) {
+        if (instantiatedClasses.add(jclass)) {
+            Set<JClass> supertypes = Sets.newSet();
+            Queue<JClass> queue = new ArrayDeque<>();
+            supertypes.add(jclass);
+            queue.add(jclass);
+            while (!queue.isEmpty()) {
+                JClass type = queue.poll();
+                MultiMap<Subsignature, Invoke> callSites = virtualCallSites.get(type);
+                if (callSites != null) {
+                    callSites.forEachSet((subsignature, invokes) -> {
+                        JMethod callee = cha.dispatch(jclass, subsignature);
+                        if (callee != null) {
+                            invokes.forEach(invoke -> addEdge(invoke, callee));
+                        }
+                    });
+                }
+                JClass superClass = type.getSuperClass();
+                if (superClass != null && supertypes.add(superClass)) {
+                    queue.add(superClass);
+                }
+                for (JClass superinterface : type.getInterfaces()) {
+                    if (supertypes.add(superinterface)) {
+                        queue.add(superinterface);
+                    }
+                }
+            }
+        }
+    }
+
+    private void processCallSite(Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        JClass declaringClass = methodRef.getDeclaringClass();
+        Subsignature subsignature = methodRef.getSubsignature();
+        switch (CallGraphs.getCallKind(callSite)) {
+            case STATIC, SPECIAL -> {
+                JMethod callee = cha.dispatch(declaringClass, subsignature);
+                if (callee != null) {
+                    addEdge(callSite, callee);
+                }
+            }
+            case VIRTUAL, INTERFACE -> {
+                virtualCallSites.computeIfAbsent(declaringClass,
+                                c -> Maps.newMultiMap())
+                        .put(subsignature, callSite);
+                for (JClass jclass : hierarchy.getAllConcreteSubclassesOf(declaringClass)) {
+                    if (instantiatedClasses.contains(jclass)) {
+                        JMethod callee = cha.dispatch(jclass, subsignature);
+                        if (callee != null) {
+                            addEdge(callSite, callee);
+                        }
+                    }
+                }
+            }
+            default -> {
+                // other kinds of calls (i.e., invokedynamic) are not handled
+            }
+        }
+    }
+
+    private void addEdge(Invoke callSite, JMethod callee) {
+        if (callGraph.addEdge(new Edge<>(
+                CallGraphs.getCallKind(callSite), callSite, callee))) {
+            workList.add(callee);
+        }
+    }
+}
@@ -75,6 +75,30 @@ public interface ClassHierarchy {
      */
     Collection<JClass> getDirectSubclassesOf(JClass jclass);
 
+    /**
+     * Checks whether a class is a subclass of another one.
+     * This check is answered by a precomputed index of the classes
+     * in this hierarchy, and takes constant time.
+     *
+     * @return true if subclass is superclass itself, or a subclass or
+     * an implementor of superclass, otherwise false.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass);
+
+    /**
+     * @return all subclasses of given class, including itself.
+     * For an interface, returns all its subinterfaces and all classes
+     * which implement it directly or indirectly.
+     */
+    Collection<JClass> getAllSubclassesOf(JClass jclass);
+
+    /**
+     * @return all concrete (i.e., neither abstract nor interface) classes
+     * in {@link #getAllSubclassesOf(JClass)}. The result of each class
+     * is memoized.
+     */
+    Collection<JClass> getAllConcreteSubclassesOf(JClass jclass);
+
     /**
      * Obtains a JRE class by it name.
      *
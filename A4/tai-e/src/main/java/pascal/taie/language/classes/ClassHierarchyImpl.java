@@ -65,6 +65,12 @@ public class ClassHierarchyImpl implements ClassHierarchy {
      */
     private final Map<JClass, Set<JClass>> directSubclasses = newMap();
 
+    /**
+     * Index for subtype queries. It is built from {@link #allClasses()}
+     * lazily on the first query, and discarded when a new class is added.
+     */
+    private volatile SubtypeIndex subtypeIndex;
+
     @Override
     public void setDefaultClassLoader(JClassLoader loader) {
         this.defaultLoader = loader;
@@ -96,7 +102,8 @@ public class ClassHierarchyImpl implements ClassHierarchy {
     }
 
     @Override
-    public void addClass(JClass jclass) {
+    public synchronized void addClass(JClass jclass) {
+        subtypeIndex = null;
         // Add direct subinterface
         if (jclass.isInterface()) {
             jclass.getInterfaces().forEach(iface ->
@@ -160,6 +167,45 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return directSubclasses.getOrDefault(jclass, Set.of());
     }
 
+    @Override
+    public boolean isSubclass(JClass superclass, JClass subclass) {
+        SubtypeIndex index = getSubtypeIndex();
+        if (!index.contains(subclass)) {
+            // subclass is not in this hierarchy, thus look up its
+            // supertypes directly
+            return superclass == subclass ||
+                    (subclass.getSuperClass() != null &&
+                            isSubclass(superclass, subclass.getSuperClass())) ||
+                    subclass.getInterfaces().stream()
+                            .anyMatch(iface -> isSubclass(superclass, iface));
+        }
+        return index.isSubclass(superclass, subclass);
+    }
+
+    @Override
+    public Collection<JClass> getAllSubclassesOf(JClass jclass) {
+        return getSubtypeIndex().getAllSubclassesOf(jclass);
+    }
+
+    @Override
+    public Collection<JClass> getAllConcreteSubclassesOf(JClass jclass) {
+        return getSubtypeIndex().getAllConcreteSubclassesOf(jclass);
+    }
+
+    private SubtypeIndex getSubtypeIndex() {
+        SubtypeIndex index = subtypeIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = subtypeIndex;
+                if (index == null) {
+                    index = new SubtypeIndex(allClasses().toList());
+                    subtypeIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     private static boolean checkCHA = false;
 
     public static void setCheckCHA(boolean checkCHA) {
@@ -0,0 +1,435 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.language.classes;
+
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Precomputed index for subtype queries over a fixed set of classes.
+ * <p>
+ * The classes (excluding interfaces) form a forest via their superclasses.
+ * The forest is traversed in depth-first order, and each class is numbered
+ * by its pre-order position; then all subclasses of a class occupy the
+ * interval between its pre-order number and the pre-order number of its
+ * last descendant, so that the subclass check is two comparisons.
+ * <p>
+ * Interface implementation is recorded by a bit set of each class and
+ * interface, in which the bits of all its (transitive) superinterfaces
+ * are set. Classes which implement no interfaces other than those of
+ * their superclasses share the bit sets of their superclasses.
+ * <p>
+ * The subtype sets of interfaces and the concrete subtype sets are
+ * computed on demand, and memoized as arrays in a cache whose total
+ * size is bounded by {@link #MAX_CACHED_CLASSES}. Except for this cache,
+ * the index is immutable once built. The cache is synchronized, so that
+ * the index can be queried by multiple threads.
+ */
+final class SubtypeIndex {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    /**
+     * Maximum total number of classes in the memoized subtype sets.
+     * When it is exceeded, the least recently used sets are evicted.
+     */
+    private static final int MAX_CACHED_CLASSES = 1 << 20;
+
+    /**
+     * Map from each class to its node. The map is ordered, so that
+     * the numbering of the classes is deterministic.
+     */
+    private final Map<JClass, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Classes (excluding interfaces) in pre-order of the class forest.
+     */
+    private final List<JClass> preorder = new ArrayList<>();
+
+    /**
+     * Map from each interface to the classes which directly implement it
+     * and the interfaces which directly extend it.
+     */
+    private final Map<JClass, List<JClass>> directSubtypes = Maps.newMap();
+
+    private int interfaceCounter = 0;
+
+    private final SubclassCache cache;
+
+    /**
+     * Builds the index for given classes and all their supertypes.
+     */
+    SubtypeIndex(Collection<JClass> classes) {
+        this(classes, MAX_CACHED_CLASSES);
+    }
+
+    /**
+     * Builds the index for given classes and all their supertypes, whose
+     * memoized subtype sets contain at most cacheCapacity classes in total.
+     */
+    SubtypeIndex(Collection<JClass> classes, int cacheCapacity) {
+        cache = new SubclassCache(cacheCapacity);
+        classes.forEach(this::addNode);
+        // build the class forest and number the classes
+        Map<JClass, List<JClass>> subclasses = Maps.newMap();
+        List<JClass> roots = new ArrayList<>();
+        nodes.forEach((jclass, node) -> {
+            if (!jclass.isInterface()) {
+                JClass superClass = jclass.getSuperClass();
+                if (superClass == null) {
+                    roots.add(jclass);
+                } else {
+                    subclasses.computeIfAbsent(superClass,
+                            c -> new ArrayList<>()).add(jclass);
+                }
+            }
+        });
+        for (JClass root : roots) {
+            number(root, subclasses);
+        }
+        // compute superinterfaces of the classes and interfaces
+        nodes.keySet().forEach(this::computeSuperinterfaces);
+    }
+
+    /**
+     * Adds the nodes of given class and all its supertypes.
+     */
+    private void addNode(JClass start) {
+        // iterative depth-first traversal, as the class hierarchies of
+        // generated code may be very deep. The supertypes are pushed in
+        // reverse order, so that the classes are added in the same order
+        // as a recursive traversal.
+        Queue<JClass> stack = Collections.asLifoQueue(new ArrayDeque<>());
+        stack.add(start);
+        while (!stack.isEmpty()) {
+            JClass jclass = stack.poll();
+            if (nodes.containsKey(jclass)) {
+                continue;
+            }
+            Node node = new Node();
+            nodes.put(jclass, node);
+            if (jclass.isInterface()) {
+                node.interfaceId = interfaceCounter++;
+            }
+            List<JClass> interfaces = new ArrayList<>(jclass.getInterfaces());
+            for (JClass iface : interfaces) {
+                directSubtypes.computeIfAbsent(iface,
+                        i -> new ArrayList<>()).add(jclass);
+            }
+            Collections.reverse(interfaces);
+            stack.addAll(interfaces);
+            if (!jclass.isInterface() && jclass.getSuperClass() != null) {
+                stack.add(jclass.getSuperClass());
+            }
+        }
+    }
+
+    private void number(JClass root, Map<JClass, List<JClass>> subclasses) {
+        // iterative depth-first traversal, as the class hierarchies of
+        // generated code may be very deep
+        Queue<JClass> stack = Collections.asLifoQueue(new ArrayDeque<>());
+        List<JClass> path = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            JClass jclass = stack.poll();
+            // finish the classes on path which are not ancestors of jclass
+            while (!path.isEmpty() &&
+                    path.get(path.size() - 1) != jclass.getSuperClass()) {
+                finish(path.remove(path.size() - 1));
+            }
+            nodes.get(jclass).pre = preorder.size();
+            preorder.add(jclass);
+            path.add(jclass);
+            stack.addAll(subclasses.getOrDefault(jclass, List.of()));
+        }
+        while (!path.isEmpty()) {
+            finish(path.remove(path.size() - 1));
+        }
+    }
+
+    private void finish(JClass jclass) {
+        nodes.get(jclass).last = preorder.size() - 1;
+    }
+
+    /**
+     * Computes the superinterfaces of given class and all its supertypes.
+     */
+    private void computeSuperinterfaces(JClass start) {
+        // iterative post-order traversal, for the same reason as addNode():
+        // a class stays on the stack until the superinterfaces of all its
+        // direct supertypes are computed
+        Queue<JClass> stack = Collections.asLifoQueue(new ArrayDeque<>());
+        stack.add(start);
+        while (!stack.isEmpty()) {
+            JClass jclass = stack.peek();
+            Node node = nodes.get(jclass);
+            if (node.superinterfaces != null) {
+                stack.poll();
+                continue;
+            }
+            boolean ready = true;
+            for (JClass supertype : getDirectSupertypes(jclass)) {
+                if (nodes.get(supertype).superinterfaces == null) {
+                    stack.add(supertype);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.poll();
+                BitSet result = EMPTY;
+                for (JClass supertype : getDirectSupertypes(jclass)) {
+                    result = union(result, nodes.get(supertype).superinterfaces);
+                }
+                if (jclass.isInterface()) {
+                    result = (BitSet) result.clone();
+                    result.set(node.interfaceId);
+                }
+                node.superinterfaces = result;
+            }
+        }
+    }
+
+    /**
+     * @return the superclass (for classes) and the direct
+     * superinterfaces of given class.
+     */
+    private static List<JClass> getDirectSupertypes(JClass jclass) {
+        List<JClass> supertypes = new ArrayList<>(jclass.getInterfaces().size() + 1);
+        if (!jclass.isInterface() && jclass.getSuperClass() != null) {
+            supertypes.add(jclass.getSuperClass());
+        }
+        supertypes.addAll(jclass.getInterfaces());
+        return supertypes;
+    }
+
+    /**
+     * @return the union of given bit sets. If one set contains the other,
+     * then returns the containing set itself instead of a new one.
+     */
+    private static BitSet union(BitSet s1, BitSet s2) {
+        BitSet result = (BitSet) s1.clone();
+        result.or(s2);
+        if (result.equals(s1)) {
+            return s1;
+        } else if (result.equals(s2)) {
+            return s2;
+        } else {
+            return result;
+        }
+    }
+
+    /**
+     * @return true if given class is known to this index, otherwise false.
+     */
+    boolean contains(JClass jclass) {
+        return nodes.containsKey(jclass);
+    }
+
+    /**
+     * @return true if subclass is superclass itself, or a subclass or
+     * an implementor of superclass, otherwise false.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass) {
+        if (superclass == subclass) {
+            return true;
+        }
+        Node sup = nodes.get(superclass);
+        Node sub = nodes.get(subclass);
+        if (sup == null || sub == null) {
+            return false;
+        }
+        if (superclass.isInterface()) {
+            return sub.superinterfaces.get(sup.interfaceId);
+        } else if (subclass.isInterface()) {
+            // interfaces are subtypes of java.lang.Object only
+            return superclass.getName().equals(ClassNames.OBJECT);
+        } else {
+            return sup.pre <= sub.pre && sub.pre <= sup.last;
+        }
+    }
+
+    /**
+     * @return all subclasses of given class, including itself.
+     * For an interface, returns all its subinterfaces and all classes
+     * which implement it (directly or indirectly).
+     */
+    Collection<JClass> getAllSubclassesOf(JClass jclass) {
+        Node node = nodes.get(jclass);
+        if (node == null) {
+            return List.of(jclass);
+        }
+        if (!jclass.isInterface()) {
+            return Collections.unmodifiableList(
+                    preorder.subList(node.pre, node.last + 1));
+        }
+        return cache.get(new CacheKey(jclass, false),
+                () -> collectSubtypes(jclass).toArray(new JClass[0]));
+    }
+
+    /**
+     * @return all concrete (i.e., neither abstract nor interface) classes
+     * in {@link #getAllSubclassesOf(JClass)}.
+     */
+    Collection<JClass> getAllConcreteSubclassesOf(JClass jclass) {
+        if (!nodes.containsKey(jclass)) {
+            return isConcrete(jclass) ? List.of(jclass) : List.of();
+        }
+        return cache.get(new CacheKey(jclass, true),
+                () -> getAllSubclassesOf(jclass)
+                        .stream()
+                        .filter(SubtypeIndex::isConcrete)
+                        .toArray(JClass[]::new));
+    }
+
+    private static boolean isConcrete(JClass jclass) {
+        return !jclass.isInterface() && !jclass.isAbstract();
+    }
+
+    /**
+     * Traverses the subinterfaces and implementors of an interface.
+     */
+    private Set<JClass> collectSubtypes(JClass iface) {
+        Set<JClass> result = Sets.newHybridOrderedSet();
+        Queue<JClass> workList = new ArrayDeque<>();
+        result.add(iface);
+        workList.add(iface);
+        while (!workList.isEmpty()) {
+            JClass jclass = workList.poll();
+            for (JClass subtype : directSubtypes.getOrDefault(jclass, List.of())) {
+                if (subtype.isInterface()) {
+                    if (result.add(subtype)) {
+                        workList.add(subtype);
+                    }
+                } else if (!result.contains(subtype)) {
+                    result.addAll(getAllSubclassesOf(subtype));
+                }
+            }
+        }
+        return result;
+    }
+
+    record CacheKey(JClass jclass, boolean concrete) {
+    }
+
+    /**
+     * LRU cache of subtype sets, bounded by the total number of classes
+     * in the cached sets.
+     */
+    static final class SubclassCache {
+
+        private final int capacity;
+
+        private final LinkedHashMap<CacheKey, JClass[]> entries =
+                new LinkedHashMap<>(16, 0.75f, true);
+
+        private long size = 0;
+
+        SubclassCache(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return the set of given key, which is computed by computer
+         * and then cached if it is absent in this cache.
+         */
+        List<JClass> get(CacheKey key, Supplier<JClass[]> computer) {
+            JClass[] classes;
+            synchronized (this) {
+                classes = entries.get(key);
+            }
+            if (classes == null) {
+                // compute outside the lock, as it may recursively query
+                // the cache; concurrent computations of the same set
+                // yield the same result
+                classes = computer.get();
+                put(key, classes);
+            }
+            return Collections.unmodifiableList(Arrays.asList(classes));
+        }
+
+        private synchronized void put(CacheKey key, JClass[] classes) {
+            if (classes.length > capacity) {
+                return;
+            }
+            JClass[] prev = entries.put(key, classes);
+            if (prev != null) {
+                size -= prev.length;
+            }
+            size += classes.length;
+            Iterator<JClass[]> it = entries.values().iterator();
+            while (size > capacity) {
+                size -= it.next().length;
+                it.remove();
+            }
+        }
+
+        /**
+         * @return the total number of classes in the cached sets.
+         */
+        synchronized long size() {
+            return size;
+        }
+
+        /**
+         * @return true if the set of given key is cached, otherwise false.
+         * This check does not affect the order of eviction.
+         */
+        synchronized boolean contains(CacheKey key) {
+            return entries.containsKey(key);
+        }
+    }
+
+    private static final class Node {
+
+        /**
+         * Pre-order number of the class, or -1 for interfaces.
+         */
+        private int pre = -1;
+
+        /**
+         * Pre-order number of the last descendant of the class.
+         */
+        private int last = -1;
+
+        /**
+         * ID of the interface, or -1 for classes.
+         */
+        private int interfaceId = -1;
+
+        private BitSet superinterfaces;
+    }
+}
@@ -22,8 +22,20 @@
 
 package pascal.taie.analysis.graph.callgraph.cha;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class CHATest {
     
@@ -50,4 +62,53 @@ public class CHATest {
     public void testAbstractMethod() {
         test("AbstractMethod");
     }
+
+    @Test
+    public void testVirtualCallParallel() {
+        Tests.test("VirtualCall", "src/test/resources/cha/", "cg",
+                "algorithm:cha;parallelism:4");
+    }
+
+    @Test
+    public void testInterfaceParallel() {
+        Tests.test("Interface", "src/test/resources/cha/", "cg",
+                "algorithm:cha;parallelism:4");
+    }
+
+    @Test
+    public void testParallelismEdges() {
+        for (String main : new String[]{
+                "StaticCall", "VirtualCall", "Interface", "AbstractMethod"}) {
+            Set<String> expected = buildEdges(main, 1);
+            Assert.assertFalse(expected.isEmpty());
+            for (int parallelism : new int[]{ 2, 4, 8 }) {
+                Assert.assertEquals("edges of " + main + " with " +
+                                parallelism + " threads",
+                        expected, buildEdges(main, parallelism));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidParallelism() {
+        for (Object parallelism : new Object[]{ 0, -1, "many" }) {
+            Assert.assertThrows(ConfigException.class, () -> new CallGraphBuilder(
+                    new AnalysisConfig(CallGraphBuilder.ID,
+                            "algorithm", "cha", "parallelism", parallelism)));
+        }
+    }
+
+    /**
+     * Builds the call graph of given program with given number of threads.
+     *
+     * @return the string representations of the edges of the call graph.
+     */
+    private static Set<String> buildEdges(String main, int parallelism) {
+        Tests.test(main, "src/test/resources/cha/", "cg",
+                "algorithm:cha;parallelism:" + parallelism);
+        CallGraph<Invoke, JMethod> callGraph = World.get().getResult(CallGraphBuilder.ID);
+        return callGraph.edges()
+                .map(Edge::toString)
+                .collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,373 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.language.classes;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.language.annotation.AnnotationHolder;
+import pascal.taie.language.type.ClassType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class SubtypeIndexTest {
+
+    /**
+     * Number of classes in the deep chain of subclasses.
+     */
+    private static final int DEPTH = 10_000;
+
+    private final Loader loader = new Loader();
+
+    private final JClass object = newClass(ClassNames.OBJECT, null);
+
+    /**
+     * Builds a hierarchy in which the interfaces form a diamond:
+     * <pre>
+     *       I
+     *      / \
+     *     J   K
+     *      \ / \
+     *       L   C
+     *       |
+     *       A (abstract)
+     *       |
+     *       B
+     * </pre>
+     * where A implements L, B extends A, and C implements K.
+     */
+    private Map<String, JClass> buildDiamond() {
+        JClass i = newInterface("I");
+        JClass j = newInterface("J", i);
+        JClass k = newInterface("K", i);
+        JClass l = newInterface("L", j, k);
+        JClass a = newClass("A", object, Set.of(Modifier.ABSTRACT), l);
+        JClass b = newClass("B", a);
+        JClass c = newClass("C", object, Set.of(), k);
+        return Map.of("I", i, "J", j, "K", k, "L", l, "A", a, "B", b, "C", c);
+    }
+
+    @Test
+    public void testDiamondInterfaces() {
+        Map<String, JClass> c = buildDiamond();
+        SubtypeIndex index = new SubtypeIndex(loader.getLoadedClasses());
+        Assert.assertTrue(index.isSubclass(c.get("I"), c.get("L")));
+        Assert.assertTrue(index.isSubclass(c.get("I"), c.get("B")));
+        Assert.assertTrue(index.isSubclass(c.get("J"), c.get("B")));
+        Assert.assertTrue(index.isSubclass(c.get("K"), c.get("C")));
+        Assert.assertTrue(index.isSubclass(object, c.get("L")));
+        Assert.assertFalse(index.isSubclass(c.get("J"), c.get("C")));
+        Assert.assertFalse(index.isSubclass(c.get("L"), c.get("I")));
+        Assert.assertFalse(index.isSubclass(c.get("A"), c.get("C")));
+        // each subtype is given once, though it is reachable via J and K
+        assertClasses(index.getAllSubclassesOf(c.get("I")),
+                c.get("I"), c.get("J"), c.get("K"), c.get("L"),
+                c.get("A"), c.get("B"), c.get("C"));
+        assertClasses(index.getAllSubclassesOf(c.get("J")),
+                c.get("J"), c.get("L"), c.get("A"), c.get("B"));
+        assertClasses(index.getAllConcreteSubclassesOf(c.get("I")),
+                c.get("B"), c.get("C"));
+        assertClasses(index.getAllSubclassesOf(object),
+                object, c.get("A"), c.get("B"), c.get("C"));
+    }
+
+    @Test
+    public void testDeepChain() {
+        JClass iface = newInterface("Deep");
+        JClass[] chain = new JClass[DEPTH];
+        chain[0] = newClass("C0", object);
+        for (int i = 1; i < DEPTH; ++i) {
+            chain[i] = i == DEPTH / 2 ?
+                    newClass("C" + i, chain[i - 1], Set.of(), iface) :
+                    newClass("C" + i, chain[i - 1]);
+        }
+        // feed the deepest classes first, so that building the index
+        // walks the whole chain of superclasses from each of them
+        List<JClass> classes = new ArrayList<>(loader.getLoadedClasses());
+        Collections.reverse(classes);
+        SubtypeIndex index = new SubtypeIndex(classes);
+        Assert.assertTrue(index.isSubclass(chain[0], chain[DEPTH - 1]));
+        Assert.assertFalse(index.isSubclass(chain[DEPTH - 1], chain[0]));
+        Assert.assertTrue(index.isSubclass(iface, chain[DEPTH - 1]));
+        Assert.assertFalse(index.isSubclass(iface, chain[DEPTH / 2 - 1]));
+        Assert.assertEquals(DEPTH / 2, index.getAllSubclassesOf(chain[DEPTH / 2]).size());
+        Assert.assertEquals(DEPTH / 2 + 1, index.getAllSubclassesOf(iface).size());
+        Assert.assertEquals(DEPTH + 1, index.getAllSubclassesOf(object).size());
+    }
+
+    @Test
+    public void testAddClassAfterQuery() {
+        Map<String, JClass> c = buildDiamond();
+        ClassHierarchy hierarchy = newHierarchy();
+        assertClasses(hierarchy.getAllSubclassesOf(c.get("A")), c.get("A"), c.get("B"));
+        Assert.assertFalse(hierarchy.isSubclass(c.get("J"), c.get("C")));
+        JClass d = newClass("D", c.get("A"));
+        JClass e = newClass("E", c.get("C"), Set.of(), c.get("J"));
+        hierarchy.addClass(d);
+        hierarchy.addClass(e);
+        assertClasses(hierarchy.getAllSubclassesOf(c.get("A")), c.get("A"), c.get("B"), d);
+        assertClasses(hierarchy.getAllConcreteSubclassesOf(c.get("J")), c.get("B"), d, e);
+        Assert.assertTrue(hierarchy.isSubclass(c.get("L"), d));
+        Assert.assertTrue(hierarchy.isSubclass(c.get("J"), e));
+        Assert.assertFalse(hierarchy.isSubclass(c.get("J"), c.get("C")));
+    }
+
+    @Test
+    public void testClassOutsideIndex() {
+        Map<String, JClass> c = buildDiamond();
+        ClassHierarchy hierarchy = newHierarchy();
+        // X is neither loaded nor added to the hierarchy
+        JClass x = new JClass(loader, "X");
+        x.build(new Builder(loader, "X", c.get("B"), Set.of(), List.of(c.get("K"))));
+        Assert.assertTrue(hierarchy.isSubclass(c.get("A"), x));
+        Assert.assertTrue(hierarchy.isSubclass(c.get("L"), x));
+        Assert.assertTrue(hierarchy.isSubclass(c.get("K"), x));
+        Assert.assertTrue(hierarchy.isSubclass(x, x));
+        Assert.assertFalse(hierarchy.isSubclass(c.get("C"), x));
+        Assert.assertFalse(hierarchy.isSubclass(x, c.get("B")));
+        assertClasses(hierarchy.getAllSubclassesOf(x), x);
+        assertClasses(hierarchy.getAllConcreteSubclassesOf(x), x);
+        Assert.assertFalse(hierarchy.getAllSubclassesOf(c.get("A")).contains(x));
+    }
+
+    @Test
+    public void testConcreteSubclasses() {
+        Map<String, JClass> c = buildDiamond();
+        // N is an abstract class between B and D, and M is an interface
+        // which is implemented only by E
+        JClass n = newClass("N", c.get("B"), Set.of(Modifier.ABSTRACT));
+        JClass d = newClass("D", n);
+        JClass m = newInterface("M", c.get("J"));
+        JClass e = newClass("E", object, Set.of(), m);
+        JClass z = newClass("Z", object, Set.of(Modifier.ABSTRACT));
+        SubtypeIndex index = new SubtypeIndex(loader.getLoadedClasses());
+        assertClasses(index.getAllConcreteSubclassesOf(c.get("I")),
+                c.get("B"), c.get("C"), d, e);
+        assertClasses(index.getAllConcreteSubclassesOf(c.get("J")),
+                c.get("B"), d, e);
+        assertClasses(index.getAllConcreteSubclassesOf(c.get("A")), c.get("B"), d);
+        assertClasses(index.getAllConcreteSubclassesOf(n), d);
+        assertClasses(index.getAllConcreteSubclassesOf(m), e);
+        assertClasses(index.getAllConcreteSubclassesOf(d), d);
+        assertClasses(index.getAllConcreteSubclassesOf(z));
+        for (JClass jclass : loader.getLoadedClasses()) {
+            for (JClass sub : index.getAllConcreteSubclassesOf(jclass)) {
+                Assert.assertFalse(sub + " is an interface", sub.isInterface());
+                Assert.assertFalse(sub + " is abstract", sub.isAbstract());
+                Assert.assertTrue(index.isSubclass(jclass, sub));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() {
+        Map<String, JClass> c = buildDiamond();
+        SubtypeIndex.SubclassCache cache = new SubtypeIndex.SubclassCache(5);
+        SubtypeIndex.CacheKey i = new SubtypeIndex.CacheKey(c.get("I"), false);
+        SubtypeIndex.CacheKey j = new SubtypeIndex.CacheKey(c.get("J"), false);
+        SubtypeIndex.CacheKey k = new SubtypeIndex.CacheKey(c.get("K"), false);
+        int[] computed = { 0 };
+        Supplier<JClass[]> pair = () -> {
+            ++computed[0];
+            return new JClass[]{ c.get("A"), c.get("B") };
+        };
+        cache.get(i, pair);
+        cache.get(j, pair);
+        Assert.assertEquals(2, computed[0]);
+        Assert.assertEquals(4, cache.size());
+        // hit, which makes I the most recently used
+        assertClasses(cache.get(i, pair), c.get("A"), c.get("B"));
+        Assert.assertEquals(2, computed[0]);
+        // K does not fit, so J, the least recently used, is evicted
+        cache.get(k, pair);
+        Assert.assertEquals(3, computed[0]);
+        Assert.assertEquals(4, cache.size());
+        Assert.assertTrue(cache.contains(i));
+        Assert.assertFalse(cache.contains(j));
+        Assert.assertTrue(cache.contains(k));
+        cache.get(j, pair);
+        Assert.assertEquals(4, computed[0]);
+        Assert.assertFalse(cache.contains(i));
+    }
+
+    @Test
+    public void testCacheBoundedSize() {
+        Map<String, JClass> c = buildDiamond();
+        int capacity = 3;
+        SubtypeIndex.SubclassCache cache = new SubtypeIndex.SubclassCache(capacity);
+        SubtypeIndex.CacheKey i = new SubtypeIndex.CacheKey(c.get("I"), false);
+        // a set larger than the capacity is returned but not cached
+        JClass[] all = loader.getLoadedClasses().toArray(new JClass[0]);
+        Assert.assertEquals(all.length, cache.get(i, () -> all).size());
+        Assert.assertFalse(cache.contains(i));
+        Assert.assertEquals(0, cache.size());
+        // the cached sets never exceed the capacity in total
+        SubtypeIndex index = new SubtypeIndex(loader.getLoadedClasses());
+        for (int round = 0; round < 3; ++round) {
+            for (JClass jclass : all) {
+                for (boolean concrete : new boolean[]{ false, true }) {
+                    cache.get(new SubtypeIndex.CacheKey(jclass, concrete), () ->
+                            (concrete ? index.getAllConcreteSubclassesOf(jclass)
+                                    : index.getAllSubclassesOf(jclass))
+                                    .toArray(new JClass[0]));
+                    Assert.assertTrue(cache.size() <= capacity);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSmallCacheCapacity() {
+        buildDiamond();
+        SubtypeIndex expected = new SubtypeIndex(loader.getLoadedClasses());
+        // small enough to evict sets on almost every query
+        SubtypeIndex index = new SubtypeIndex(loader.getLoadedClasses(), 4);
+        for (int round = 0; round < 3; ++round) {
+            for (JClass jclass : loader.getLoadedClasses()) {
+                Assert.assertEquals(
+                        new HashSet<>(expected.getAllSubclassesOf(jclass)),
+                        new HashSet<>(index.getAllSubclassesOf(jclass)));
+                Assert.assertEquals(
+                        new HashSet<>(expected.getAllConcreteSubclassesOf(jclass)),
+                        new HashSet<>(index.getAllConcreteSubclassesOf(jclass)));
+            }
+        }
+    }
+
+    private ClassHierarchy newHierarchy() {
+        ClassHierarchy hierarchy = new ClassHierarchyImpl();
+        hierarchy.setDefaultClassLoader(loader);
+        loader.getLoadedClasses().forEach(hierarchy::addClass);
+        return hierarchy;
+    }
+
+    private static void assertClasses(Collection<JClass> given, JClass... expected) {
+        Assert.assertEquals("duplicate classes in " + given,
+                given.size(), new HashSet<>(given).size());
+        Assert.assertEquals(Set.of(expected), new HashSet<>(given));
+    }
+
+    private JClass newInterface(String name, JClass... superinterfaces) {
+        return newClass(name, null,
+                Set.of(Modifier.INTERFACE, Modifier.ABSTRACT), superinterfaces);
+    }
+
+    private JClass newClass(String name, JClass superClass) {
+        return newClass(name, superClass, Set.of());
+    }
+
+    private JClass newClass(String name, JClass superClass,
+                            Set<Modifier> modifiers, JClass... interfaces) {
+        JClass jclass = new JClass(loader, name);
+        jclass.build(new Builder(loader, name, superClass,
+                modifiers, Arrays.asList(interfaces)));
+        loader.classes.put(name, jclass);
+        return jclass;
+    }
+
+    /**
+     * Loader of the hand-built classes.
+     */
+    private static class Loader implements JClassLoader {
+
+        private final Map<String, JClass> classes = new LinkedHashMap<>();
+
+        @Override
+        public JClass loadClass(String name) {
+            return classes.get(name);
+        }
+
+        @Override
+        public Collection<JClass> getLoadedClasses() {
+            return classes.values();
+        }
+    }
+
+    private record Builder(JClassLoader loader, String name, JClass superClass,
+                           Set<Modifier> modifiers, List<JClass> interfaces)
+            implements JClassBuilder {
+
+        @Override
+        public void build(JClass jclass) {
+            jclass.build(this);
+        }
+
+        @Override
+        public Set<Modifier> getModifiers() {
+            return modifiers;
+        }
+
+        @Override
+        public String getSimpleName() {
+            return name;
+        }
+
+        @Override
+        public ClassType getClassType() {
+            return new ClassType(loader, name);
+        }
+
+        @Override
+        public JClass getSuperClass() {
+            return superClass;
+        }
+
+        @Override
+        public Collection<JClass> getInterfaces() {
+            return interfaces;
+        }
+
+        @Override
+        public JClass getOuterClass() {
+            return null;
+        }
+
+        @Override
+        public Collection<JField> getDeclaredFields() {
+            return List.of();
+        }
+
+        @Override
+        public Collection<JMethod> getDeclaredMethods() {
+            return List.of();
+        }
+
+        @Override
+        public AnnotationHolder getAnnotationHolder() {
+            return AnnotationHolder.emptyHolder();
+        }
+
+        @Override
+        public boolean isApplication() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+public class LateAllocation {
+
+    public static void main(String[] args) {
+        Animal a = adopt();
+        a.speak();
+    }
+
+    static Animal adopt() {
+        return new Dog();
+    }
+}
+
+abstract class Animal {
+    abstract void speak();
+}
+
+class Dog extends Animal {
+    void speak() {
+        new Puppy();
+    }
+}
+
+class Puppy extends Dog {
+    void speak() {
+    }
+}
+
+class Cat extends Animal {
+    void speak() {
+    }
+}